@@ -0,0 +1,79 @@
+package io.inbot.datemath.benchmarks;
+
+import io.inbot.datemath.DateBucketer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Date histogram bucket keys for a batch of timestamps, compared to truncating with java.time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BucketBenchmark {
+    private static final int SIZE = 1000;
+
+    @Param({"1h", "1d", "1M"})
+    public String interval;
+
+    @Param({"UTC", "Europe/Berlin"})
+    public String zone;
+
+    private long[] timestamps;
+    private long[] keys;
+    private DateBucketer bucketer;
+    private ZoneId zoneId;
+    private ChronoUnit unit;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        timestamps = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            timestamps[i] = 1_400_000_000_000L + random.nextInt(Integer.MAX_VALUE) * 100L;
+        }
+        keys = new long[SIZE];
+        zoneId = ZoneId.of(zone);
+        bucketer = DateBucketer.of(interval, zoneId);
+        unit = interval.endsWith("h") ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+    }
+
+    @Benchmark
+    public long[] bucketKey() {
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = bucketer.bucketKey(timestamps[i]);
+        }
+        return keys;
+    }
+
+    @Benchmark
+    public long[] javaTime() {
+        for (int i = 0; i < SIZE; i++) {
+            LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamps[i]), zoneId).truncatedTo(unit);
+            if (interval.endsWith("M")) {
+                local = local.withDayOfMonth(1);
+            }
+            keys[i] = ZonedDateTime.ofLocal(local, zoneId, null).toInstant().toEpochMilli();
+        }
+        return keys;
+    }
+}
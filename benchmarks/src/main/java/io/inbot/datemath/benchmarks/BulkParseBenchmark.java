@@ -0,0 +1,71 @@
+package io.inbot.datemath.benchmarks;
+
+import io.inbot.datemath.DateMath;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converting a column of exported timestamps, mostly iso instants with the occasional relative expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkParseBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private String[] column;
+    private long[] out;
+    private long now;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        column = new String[size];
+        for (int i = 0; i < size; i++) {
+            if (i % 100 == 0) {
+                column[i] = "now-" + random.nextInt(100) + "d";
+            } else {
+                column[i] = DateMath.formatIsoDate(1_400_000_000_000L + random.nextInt(Integer.MAX_VALUE) * 100L);
+            }
+        }
+        out = new long[size];
+        now = Instant.parse("2015-03-10T12:34:56.789Z").toEpochMilli();
+    }
+
+    @Benchmark
+    public long[] parseOneByOne() {
+        for (int i = 0; i < column.length; i++) {
+            out[i] = DateMath.parse(column[i]).toEpochMilli();
+        }
+        return out;
+    }
+
+    @Benchmark
+    public long[] parseAll() {
+        DateMath.parseAll(column, out, now, null);
+        return out;
+    }
+
+    @Benchmark
+    public long[] parallelParseAll() {
+        DateMath.parallelParseAll(column, out, now, null);
+        return out;
+    }
+}
@@ -0,0 +1,53 @@
+package io.inbot.datemath.benchmarks;
+
+import io.inbot.datemath.DateMath;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Same work as the single threaded benchmarks but with 4 threads to expose contention on shared state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentBenchmark {
+
+    @Param({
+        "2015-01-01T10:00:00.000Z",
+        "now-1d",
+        "yesterday + 1h"
+    })
+    public String expression;
+
+    private final Instant instant = Instant.parse("2015-01-01T10:00:00.123Z");
+
+    @Benchmark
+    public Instant parse() {
+        return DateMath.parse(expression);
+    }
+
+    @Benchmark
+    public long parseEpochMillis() {
+        return DateMath.parseEpochMillis(expression);
+    }
+
+    @Benchmark
+    public String formatIsoDate() {
+        return DateMath.formatIsoDate(instant);
+    }
+}
@@ -0,0 +1,108 @@
+package io.inbot.datemath.benchmarks;
+
+import io.inbot.datemath.DateMath;
+import io.inbot.datemath.IsoTimestampFormatter;
+import io.inbot.datemath.PeriodLabelRenderer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting and rendering of timestamps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+    private final Instant instant = Instant.parse("2015-01-01T10:00:00.123Z");
+    private final StringBuilder buffer = new StringBuilder(32);
+    private final byte[] bytes = new byte[32];
+    private final IsoTimestampFormatter formatter = new IsoTimestampFormatter();
+    private final PeriodLabelRenderer labels = new PeriodLabelRenderer(ZoneOffset.UTC, Locale.ENGLISH);
+    private final byte[] simpleTimestamp = "20150101100000".getBytes(StandardCharsets.US_ASCII);
+    // advances 1ms per call like a busy log would
+    private long millis = instant.toEpochMilli();
+
+    @Benchmark
+    public String formatIsoDateInstant() {
+        return DateMath.formatIsoDate(instant);
+    }
+
+    @Benchmark
+    public String formatIsoDateMillis() {
+        return DateMath.formatIsoDate(millis++);
+    }
+
+    @Benchmark
+    public String formatIsoDateNoMs() {
+        return DateMath.formatIsoDateNoMs(instant);
+    }
+
+    @Benchmark
+    public StringBuilder formatIsoDateStringBuilder() {
+        buffer.setLength(0);
+        DateMath.formatIsoDate(millis++, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public int formatIsoDateBytes() {
+        return DateMath.formatIsoDate(millis++, bytes, 0);
+    }
+
+    @Benchmark
+    public int isoTimestampFormatterBytes() {
+        return formatter.format(millis++, bytes, 0);
+    }
+
+    @Benchmark
+    public String formatSimpleIsoTimestamp() {
+        return DateMath.formatSimpleIsoTimestamp(instant);
+    }
+
+    @Benchmark
+    public int formatSimpleIsoTimestampBytes() {
+        return DateMath.formatSimpleIsoTimestamp(millis++, bytes, 0);
+    }
+
+    @Benchmark
+    public long parseSimpleIsoTimestampBytes() {
+        return DateMath.parseSimpleIsoTimestampMillis(simpleTimestamp, 0, simpleTimestamp.length);
+    }
+
+    @Benchmark
+    public String renderWeekYear() {
+        return DateMath.renderWeekYear(instant, ZoneOffset.UTC, Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public String renderMonthYear() {
+        return DateMath.renderMonthYear(instant, ZoneOffset.UTC, Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public StringBuilder periodLabelRendererMonthYear() {
+        buffer.setLength(0);
+        return labels.appendMonthYear(millis++, buffer);
+    }
+
+    @Benchmark
+    public StringBuilder periodLabelRendererWeekYear() {
+        buffer.setLength(0);
+        return labels.appendWeekYear(millis++, buffer);
+    }
+}
@@ -0,0 +1,45 @@
+package io.inbot.datemath.benchmarks;
+
+import io.inbot.datemath.DateMath;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validation of the kind of partial input you get from users that are still typing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvalidInputBenchmark {
+
+    @Param({
+        "xxx",
+        "now-",
+        "2015-02-30",
+        "2015-01-0",
+        "now+1x"
+    })
+    public String expression;
+
+    @Benchmark
+    public boolean isValid() {
+        return DateMath.isValid(expression);
+    }
+
+    @Benchmark
+    public long parseEpochMillis() {
+        return DateMath.parseEpochMillis(expression);
+    }
+}
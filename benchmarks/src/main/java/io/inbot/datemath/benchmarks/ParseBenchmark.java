@@ -0,0 +1,93 @@
+package io.inbot.datemath.benchmarks;
+
+import io.inbot.datemath.CompiledDateMath;
+import io.inbot.datemath.DateMath;
+import io.inbot.datemath.DateMathResolver;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of the different kinds of input that DateMath supports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({
+        "2015-01-01T10:00:00.000Z",
+        "2015-01-01",
+        "10:00",
+        "2015-01",
+        "beginning month",
+        "now-1d",
+        "yesterday + 1h"
+    })
+    public String expression;
+
+    private CompiledDateMath compiled;
+    private byte[] bytes;
+    private final DateMathResolver resolver = new DateMathResolver(100);
+
+    @Setup
+    public void setup() {
+        compiled = DateMath.compile(expression);
+        bytes = expression.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public Instant parse() {
+        return DateMath.parse(expression);
+    }
+
+    @Benchmark
+    public Instant parseWithZone() {
+        return DateMath.parse(expression, "+02:00");
+    }
+
+    @Benchmark
+    public Instant parseWithRegionZone() {
+        return DateMath.parse(expression, "Europe/Berlin");
+    }
+
+    @Benchmark
+    public long parseEpochMillis() {
+        return DateMath.parseEpochMillis(expression);
+    }
+
+    @Benchmark
+    public long parseEpochMillisFromBytes() {
+        return DateMath.parseEpochMillis(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public Instant resolve() {
+        return resolver.resolve(expression);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return DateMath.isValid(expression);
+    }
+
+    @Benchmark
+    public Instant evaluateCompiled() {
+        return compiled.evaluate(Instant.now(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,47 @@
+package io.inbot.datemath.benchmarks;
+
+import io.inbot.datemath.DateMath;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The first call in a fresh JVM, which includes loading and initializing the classes it needs. This is what short
+ * lived command line tools and functions pay. Every fork measures exactly one call, so run enough forks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1, batchSize = 1)
+@Fork(20)
+public class StartupBenchmark {
+
+    @Benchmark
+    public long firstParseEpochMillis() {
+        return DateMath.parseEpochMillis("2015-01-01T10:00:00.000Z");
+    }
+
+    @Benchmark
+    public Instant firstParse() {
+        return DateMath.parse("now-1d");
+    }
+
+    @Benchmark
+    public String firstFormat() {
+        return DateMath.formatIsoDate(1420106400000L);
+    }
+
+    @Benchmark
+    public Instant firstConstant() {
+        return DateMath.AT_Y2K;
+    }
+}
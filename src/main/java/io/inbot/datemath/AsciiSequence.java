@@ -0,0 +1,71 @@
+package io.inbot.datemath;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable CharSequence view of ascii bytes in a byte array or ByteBuffer so they can be parsed without decoding them
+ * to a String first. Bytes are mapped to chars one to one; anything outside of ascii ends up as a char that none of the
+ * DateMath grammars accept.
+ */
+final class AsciiSequence implements CharSequence {
+    private byte[] buf;
+    private ByteBuffer buffer;
+    private int off;
+    private int len;
+
+    AsciiSequence reset(byte[] buf, int off, int len) {
+        this.buf = buf;
+        this.buffer = null;
+        this.off = off;
+        this.len = len;
+        return this;
+    }
+
+    /**
+     * Uses absolute indexes; the position and limit of the buffer are ignored.
+     */
+    AsciiSequence reset(ByteBuffer buffer, int off, int len) {
+        this.buf = null;
+        this.buffer = buffer;
+        this.off = off;
+        this.len = len;
+        return this;
+    }
+
+    /**
+     * Drops the reference to the bytes.
+     */
+    void clear() {
+        buf = null;
+        buffer = null;
+        len = 0;
+    }
+
+    @Override
+    public int length() {
+        return len;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) ((buf != null ? buf[off + index] : buffer.get(off + index)) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        if (buf != null) {
+            return new String(buf, off, len, StandardCharsets.ISO_8859_1);
+        }
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bytes[i] = buffer.get(off + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,153 @@
+package io.inbot.datemath;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses many expressions to epoch millis in a tight loop. Every element is parsed like DateMath.parseEpochMillis
+ * against the same reference time, so relative expressions in one batch are consistent with each other. Failures
+ * don't abort the batch; the element gets DateMath.INVALID_EPOCH and its bit is set in the errors BitSet.
+ */
+final class BulkParser {
+    private BulkParser() {
+    }
+
+    static int parseAll(CharSequence[] in, int from, int to, long[] out, long nowMillis, BitSet errors) {
+        IsoScanner scanner = new IsoScanner();
+        int failures = 0;
+        for (int i = from; i < to; i++) {
+            long millis = EpochParser.parseEpochMillis(in[i], nowMillis, scanner);
+            out[i] = millis;
+            if (millis == DateMath.INVALID_EPOCH) {
+                failures++;
+                if (errors != null) {
+                    errors.set(i);
+                }
+            }
+        }
+        return failures;
+    }
+
+    static int parseAll(List<? extends CharSequence> in, int from, int to, long[] out, long nowMillis, BitSet errors) {
+        if (!(in instanceof RandomAccess)) {
+            // avoid get(i) on linked lists
+            return parseAll(in.subList(from, to).iterator(), from, out, nowMillis, errors);
+        }
+        IsoScanner scanner = new IsoScanner();
+        int failures = 0;
+        for (int i = from; i < to; i++) {
+            long millis = EpochParser.parseEpochMillis(in.get(i), nowMillis, scanner);
+            out[i] = millis;
+            if (millis == DateMath.INVALID_EPOCH) {
+                failures++;
+                if (errors != null) {
+                    errors.set(i);
+                }
+            }
+        }
+        return failures;
+    }
+
+    private static int parseAll(Iterator<? extends CharSequence> in, int from, long[] out, long nowMillis, BitSet errors) {
+        IsoScanner scanner = new IsoScanner();
+        int failures = 0;
+        int i = from;
+        while (in.hasNext()) {
+            long millis = EpochParser.parseEpochMillis(in.next(), nowMillis, scanner);
+            out[i] = millis;
+            if (millis == DateMath.INVALID_EPOCH) {
+                failures++;
+                if (errors != null) {
+                    errors.set(i);
+                }
+            }
+            i++;
+        }
+        return failures;
+    }
+
+    static long[] parseAll(Iterator<? extends CharSequence> in, long nowMillis, BitSet errors) {
+        IsoScanner scanner = new IsoScanner();
+        long[] out = new long[16];
+        int i = 0;
+        while (in.hasNext()) {
+            if (i == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            long millis = EpochParser.parseEpochMillis(in.next(), nowMillis, scanner);
+            out[i] = millis;
+            if (millis == DateMath.INVALID_EPOCH && errors != null) {
+                errors.set(i);
+            }
+            i++;
+        }
+        return i == out.length ? out : Arrays.copyOf(out, i);
+    }
+
+    /**
+     * Splits [0, size) in chunks of at most chunkSize elements and parses them on the pool. Each chunk writes to its own
+     * region of out. The BitSet is not thread safe, so errors are collected afterwards from the INVALID_EPOCH values,
+     * which is unambiguous since no valid expression evaluates to that.
+     */
+    static int parallelParseAll(CharSequence[] array, List<? extends CharSequence> list, int size, long[] out, long nowMillis, BitSet errors, ForkJoinPool pool,
+            int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize should be at least 1");
+        }
+        int failures = pool.invoke(new ParseTask(array, list, 0, size, out, nowMillis, chunkSize));
+        if (errors != null && failures > 0) {
+            for (int i = 0; i < size; i++) {
+                if (out[i] == DateMath.INVALID_EPOCH) {
+                    errors.set(i);
+                }
+            }
+        }
+        return failures;
+    }
+
+    static void checkOutput(int size, long[] out) {
+        if (out.length < size) {
+            throw new IllegalArgumentException("output array has room for " + out.length + " values but there are " + size + " inputs");
+        }
+    }
+
+    private static final class ParseTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        // one of these is null
+        private final CharSequence[] array;
+        private final List<? extends CharSequence> list;
+        private final int from;
+        private final int to;
+        private final long[] out;
+        private final long nowMillis;
+        private final int chunkSize;
+
+        ParseTask(CharSequence[] array, List<? extends CharSequence> list, int from, int to, long[] out, long nowMillis, int chunkSize) {
+            this.array = array;
+            this.list = list;
+            this.from = from;
+            this.to = to;
+            this.out = out;
+            this.nowMillis = nowMillis;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= chunkSize) {
+                return array != null ? parseAll(array, from, to, out, nowMillis, null) : parseAll(list, from, to, out, nowMillis, null);
+            }
+            int middle = (from + to) >>> 1;
+            ParseTask left = new ParseTask(array, list, from, middle, out, nowMillis, chunkSize);
+            left.fork();
+            int failures = new ParseTask(array, list, middle, to, out, nowMillis, chunkSize).compute();
+            return failures + left.join();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.inbot.datemath;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coarse clock that reads the system clock once per tick on a background daemon thread, so that reading the time is
+ * just a volatile read. Useful with DateMath.setClock when you parse lots of relative expressions and can live with the
+ * time being up to one tick behind.
+ *
+ * Close it to stop the background thread. Clocks created with withZone share the ticker of the clock they were created
+ * from.
+ */
+public final class CachedClock extends Clock implements AutoCloseable {
+    private final Ticker ticker;
+    private final ZoneId zone;
+
+    /**
+     * @param resolutionMillis
+     *            how often the time is refreshed
+     */
+    public CachedClock(long resolutionMillis) {
+        this(new Ticker(resolutionMillis), ZoneOffset.UTC);
+        ticker.start();
+    }
+
+    private CachedClock(Ticker ticker, ZoneId zone) {
+        this.ticker = ticker;
+        this.zone = zone;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new CachedClock(ticker, zone);
+    }
+
+    @Override
+    public long millis() {
+        return ticker.millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(ticker.millis);
+    }
+
+    /**
+     * @return how often the time is refreshed
+     */
+    public long resolutionMillis() {
+        return ticker.resolutionNanos / 1_000_000;
+    }
+
+    /**
+     * Stops the background thread. After this the clock keeps returning the last time it read.
+     */
+    @Override
+    public void close() {
+        ticker.running = false;
+        LockSupport.unpark(ticker);
+    }
+
+    @Override
+    public String toString() {
+        return "CachedClock[" + resolutionMillis() + "ms," + zone + "]";
+    }
+
+    private static final class Ticker extends Thread {
+        private final long resolutionNanos;
+        private volatile long millis = System.currentTimeMillis();
+        private volatile boolean running = true;
+
+        Ticker(long resolutionMillis) {
+            super("datemath-cached-clock");
+            if (resolutionMillis < 1) {
+                throw new IllegalArgumentException("resolutionMillis should be at least 1");
+            }
+            this.resolutionNanos = TimeUnit.MILLISECONDS.toNanos(resolutionMillis);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                millis = System.currentTimeMillis();
+                LockSupport.parkNanos(this, resolutionNanos);
+            }
+        }
+    }
+}
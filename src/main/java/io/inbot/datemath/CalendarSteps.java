@@ -0,0 +1,211 @@
+package io.inbot.datemath;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The instants (in epoch millis) from a start up to an (exclusive) end in calendar steps like "1w" or "1m", e.g. the
+ * start of each week between "beginning year" and "now". Steps are taken in local time in the zone and the n-th step is
+ * always computed from the start, so stepping a month from january 31st gives february 28th, march 31st, etc. like
+ * LocalDateTime.plusMonths(n) would.
+ *
+ * Nothing is computed until you iterate. Since any step can be computed directly, the spliterator splits evenly and
+ * parallel streams work well. Instances are immutable; each iterator, spliterator or stream has its own position.
+ */
+public final class CalendarSteps {
+    private final DateBucketer stepper;
+    private final long startMillis;
+    private final long size;
+
+    private CalendarSteps(DateBucketer stepper, long startMillis, long endMillis) {
+        this.stepper = stepper;
+        this.startMillis = startMillis;
+        this.size = count(stepper, startMillis, endMillis);
+    }
+
+    /**
+     * @param from
+     *            any expression supported by DateMath.parse; the first step
+     * @param to
+     *            any expression supported by DateMath.parse; the end (exclusive)
+     * @param step
+     *            an amount and a unit like "1d", "1w" or "1m"; the amount defaults to 1
+     * @return the steps in UTC
+     * @throws IllegalArgumentException
+     *             if one of the expressions or the step is not valid
+     */
+    public static CalendarSteps of(String from, String to, String step) {
+        return of(from, to, step, ZoneOffset.UTC);
+    }
+
+    /**
+     * @param from
+     *            any expression supported by DateMath.parse; the first step
+     * @param to
+     *            any expression supported by DateMath.parse; the end (exclusive). Both are resolved against the same now.
+     * @param step
+     *            an amount and a unit like "1d", "1w" or "1m"; the amount defaults to 1
+     * @param zone
+     *            zone used to interpret the expressions and to take calendar steps in
+     * @return the steps
+     * @throws IllegalArgumentException
+     *             if one of the expressions or the step is not valid
+     */
+    public static CalendarSteps of(String from, String to, String step, ZoneId zone) {
+        Instant now = DateMath.now();
+        return of(DateMath.parse(from, now, zone).toEpochMilli(), DateMath.parse(to, now, zone).toEpochMilli(), step, zone);
+    }
+
+    /**
+     * @param fromMillis
+     *            the first step in epoch millis
+     * @param toMillis
+     *            the end (exclusive) in epoch millis
+     * @param step
+     *            an amount and a unit like "1d", "1w" or "1m"; the amount defaults to 1
+     * @param zone
+     *            zone used to take calendar steps in
+     * @return the steps
+     * @throws IllegalArgumentException
+     *             if the step is not valid
+     */
+    public static CalendarSteps of(long fromMillis, long toMillis, String step, ZoneId zone) {
+        return new CalendarSteps(DateBucketer.of(step, zone), fromMillis, toMillis);
+    }
+
+    /**
+     * @return the number of steps before the end is reached
+     */
+    private static long count(DateBucketer stepper, long startMillis, long endMillis) {
+        if (startMillis >= endMillis) {
+            return 0;
+        }
+        double average = stepper.averageBucketMillis();
+        if (stepper.isFixedLength()) {
+            long length = (long) average;
+            return (endMillis - startMillis - 1) / length + 1;
+        }
+        // estimate and correct; with variable length steps the estimate is off by at most a few steps
+        long last = (long) ((endMillis - startMillis) / average);
+        while (last > 0 && stepOrMax(stepper, startMillis, last) >= endMillis) {
+            last--;
+        }
+        while (stepOrMax(stepper, startMillis, last + 1) < endMillis) {
+            last++;
+        }
+        return last + 1;
+    }
+
+    private static long stepOrMax(DateBucketer stepper, long startMillis, long n) {
+        try {
+            return stepper.plusSteps(startMillis, n);
+        } catch (DateTimeException | ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return the number of steps
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param n
+     *            index of the step, starting at 0
+     * @return the n-th step in epoch millis
+     * @throws IndexOutOfBoundsException
+     *             if n is negative or not less than size
+     */
+    public long get(long n) {
+        if (n < 0 || n >= size) {
+            throw new IndexOutOfBoundsException("step " + n + " of " + size);
+        }
+        return stepper.plusSteps(startMillis, n);
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    public Spliterator.OfLong spliterator() {
+        return new StepSpliterator(0, size);
+    }
+
+    public LongStream stream() {
+        return StreamSupport.longStream(spliterator(), false);
+    }
+
+    public LongStream parallelStream() {
+        return StreamSupport.longStream(spliterator(), true);
+    }
+
+    @Override
+    public String toString() {
+        return "CalendarSteps[" + DateMath.formatIsoDate(startMillis) + ", " + stepper + ", size=" + size + "]";
+    }
+
+    private final class StepSpliterator implements Spliterator.OfLong {
+        private long index;
+        private final long fence;
+
+        StepSpliterator(long index, long fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(stepper.plusSteps(startMillis, index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            for (; index < fence; index++) {
+                action.accept(stepper.plusSteps(startMillis, index));
+            }
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            long middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            StepSpliterator prefix = new StepSpliterator(index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            // not DISTINCT: hourly steps in a region zone can end up on the same instant in a dst gap
+            return ORDERED | SORTED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            // natural order
+            return null;
+        }
+    }
+}
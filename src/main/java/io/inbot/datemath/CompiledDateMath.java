@@ -0,0 +1,350 @@
+package io.inbot.datemath;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * A parsed date math expression. Create one with DateMath.compile(String) and evaluate it as often as you like against
+ * a reference instant and zone. Evaluating does not involve any regular expressions or string manipulation and only
+ * allocates the resulting Instant.
+ *
+ * The expression is represented as an anchor (an iso timestamp, a date, a time, or a keyword like "now" or "beginning
+ * month") followed by a list of adjustments with a unit and an amount. Instances are immutable and thread safe.
+ */
+public final class CompiledDateMath {
+    static final int ABSOLUTE = 0;
+    static final int DATE = 1;
+    static final int TIME = 2;
+    static final int NOW = 3;
+    // value is the number of days relative to today
+    static final int START_OF_DAY = 4;
+    // value is 0 for the beginning and 1 for the end
+    static final int MONTH = 5;
+    static final int YEAR = 6;
+    static final int WEEK = 7;
+
+    // amount for an adjustment that rounds to the unit instead of adding to it, e.g. "/d"
+    static final long ROUND = Long.MIN_VALUE;
+
+    static final DateUnit[] NO_UNITS = new DateUnit[0];
+    static final long[] NO_AMOUNTS = new long[0];
+
+    private final String expression;
+    private final int anchor;
+    private final long anchorValue;
+    private final int anchorNano;
+    private final DateUnit[] units;
+    private final long[] amounts;
+
+    CompiledDateMath(String expression, int anchor, long anchorValue, int anchorNano) {
+        this(expression, anchor, anchorValue, anchorNano, NO_UNITS, NO_AMOUNTS);
+    }
+
+    /**
+     * @param units
+     *            units of the adjustments; not copied
+     * @param amounts
+     *            signed amounts of the adjustments; not copied
+     */
+    CompiledDateMath(String expression, int anchor, long anchorValue, int anchorNano, DateUnit[] units, long[] amounts) {
+        this.expression = expression;
+        this.anchor = anchor;
+        this.anchorValue = anchorValue;
+        this.anchorNano = anchorNano;
+        this.units = units;
+        this.amounts = amounts;
+    }
+
+    /**
+     * @return a copy of this with more adjustments at the end.
+     */
+    CompiledDateMath plus(String expression, DateUnit[] moreUnits, long[] moreAmounts) {
+        DateUnit[] newUnits = Arrays.copyOf(units, units.length + moreUnits.length);
+        long[] newAmounts = Arrays.copyOf(amounts, amounts.length + moreAmounts.length);
+        System.arraycopy(moreUnits, 0, newUnits, units.length, moreUnits.length);
+        System.arraycopy(moreAmounts, 0, newAmounts, amounts.length, moreAmounts.length);
+        return new CompiledDateMath(expression, anchor, anchorValue, anchorNano, newUnits, newAmounts);
+    }
+
+    boolean hasAdjustments() {
+        return units.length > 0;
+    }
+
+    /**
+     * @return false if the expression evaluates to the same instant no matter what now is
+     */
+    boolean dependsOnNow() {
+        return anchor != ABSOLUTE && anchor != DATE;
+    }
+
+    /**
+     * The result only changes when the local time of now plus shiftMillis moves into the next one of these units, e.g.
+     * days for "yesterday" or "now+1h/d" and hours for "now+1d/h".
+     *
+     * @return the unit or null if the result can change at any time
+     */
+    DateUnit granularity() {
+        switch (anchor) {
+        case TIME:
+        case START_OF_DAY:
+        case WEEK:
+            // the week keywords start on sunday, so they don't line up with DateUnit.WEEKS
+            return DateUnit.DAYS;
+        case MONTH:
+            return DateUnit.MONTHS;
+        case YEAR:
+            return DateUnit.YEARS;
+        case NOW:
+            break;
+        default:
+            return null;
+        }
+        int round = firstRound();
+        if (round == units.length) {
+            return null;
+        }
+        DateUnit granularity = units[round];
+        boolean fixedLength = false;
+        boolean calendar = false;
+        for (int i = 0; i < round; i++) {
+            if (isFixedLength(units[i])) {
+                // these only shift now; see shiftMillis
+                fixedLength = true;
+            } else {
+                // calendar adjustments before the rounding can move the point where the rounded value changes
+                calendar = true;
+                granularity = coarsestCommonUnit(granularity, units[i]);
+            }
+        }
+        if (fixedLength && calendar) {
+            // both local and epoch time arithmetic; not worth figuring out when that changes
+            return null;
+        }
+        return granularity == DateUnit.MILLIS ? null : granularity;
+    }
+
+    /**
+     * @return the millis that the ms, s and h adjustments before the first rounding add to now
+     */
+    long shiftMillis() {
+        long shift = 0;
+        if (anchor == NOW) {
+            int round = firstRound();
+            for (int i = 0; i < round; i++) {
+                if (isFixedLength(units[i])) {
+                    shift = Math.addExact(shift, Math.multiplyExact(amounts[i], units[i] == DateUnit.MILLIS ? 1 : units[i] == DateUnit.SECONDS ? 1000 : 3_600_000));
+                }
+            }
+        }
+        return shift;
+    }
+
+    private int firstRound() {
+        int round = 0;
+        while (round < units.length && amounts[round] != ROUND) {
+            round++;
+        }
+        return round;
+    }
+
+    private static DateUnit coarsestCommonUnit(DateUnit a, DateUnit b) {
+        if (a == DateUnit.WEEKS && b.compareTo(DateUnit.WEEKS) > 0 || b == DateUnit.WEEKS && a.compareTo(DateUnit.WEEKS) > 0) {
+            // weeks don't line up with months and years
+            return DateUnit.DAYS;
+        }
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * @return the expression this was compiled from
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return the Instant for the expression relative to DateMath.now(); any relative expressions are interpreted to
+     *         be in the UTC timezone.
+     */
+    public Instant evaluate() {
+        return evaluate(DateMath.now(), ZoneOffset.UTC);
+    }
+
+    /**
+     * @param clock
+     *            provides both now and the zone to interpret the expression in
+     * @return the Instant for the expression
+     */
+    public Instant evaluate(Clock clock) {
+        return evaluate(clock.instant(), clock.getZone());
+    }
+
+    /**
+     * @param now
+     *            the reference instant that relative expressions are resolved against
+     * @param zoneId
+     *            zone used to interpret dates, times and relative expressions; defaults to UTC when null
+     * @return the Instant for the expression
+     */
+    public Instant evaluate(Instant now, ZoneId zoneId) {
+        return evaluate(now, zoneId, false);
+    }
+
+    /**
+     * Like Elasticsearch, rounding like "now/d" goes to the start of the unit by default and to the last millisecond of
+     * the unit when rounding up. Round up for the upper bound of an lte range and the lower bound of a gt range so
+     * that the whole unit is included in, respectively excluded from, the range.
+     *
+     * @param now
+     *            the reference instant that relative expressions are resolved against
+     * @param zoneId
+     *            zone used to interpret dates, times and relative expressions; defaults to UTC when null
+     * @param roundUp
+     *            round to the end of the unit instead of the start
+     * @return the Instant for the expression
+     */
+    public Instant evaluate(Instant now, ZoneId zoneId, boolean roundUp) {
+        if (zoneId == null) {
+            zoneId = ZoneOffset.UTC;
+        }
+        int last = units.length - 1;
+        if (anchor == ABSOLUTE && last < 0) {
+            return Instant.ofEpochSecond(anchorValue, anchorNano);
+        }
+        // calendar units and rounding work on the local date time in the zone, ms, s and h on the epoch time like
+        // ZonedDateTime.plusHours does. Like ZonedDateTime, every step on the local time converts back right away and
+        // keeps the offset it had if it can, so "now+0d" stays now in the second pass of an overlap.
+        long localNow = now.getEpochSecond() + offset(zoneId, now.getEpochSecond());
+        long seconds;
+        int nano = 0;
+        switch (anchor) {
+        case ABSOLUTE:
+            seconds = anchorValue;
+            nano = anchorNano;
+            break;
+        case DATE:
+            seconds = toEpochSecond(anchorValue * EpochMath.SECONDS_PER_DAY, zoneId);
+            break;
+        case TIME:
+            seconds = toEpochSecond(EpochMath.startOfDay(localNow) + anchorValue, zoneId);
+            nano = anchorNano;
+            break;
+        case NOW:
+            seconds = now.getEpochSecond();
+            nano = now.getNano();
+            break;
+        default:
+            seconds = toEpochSecond(resolveKeyword(localNow), zoneId);
+        }
+
+        for (int i = 0; i <= last; i++) {
+            if (amounts[i] == ROUND) {
+                if (units[i] == DateUnit.MILLIS) {
+                    nano -= nano % 1_000_000;
+                } else {
+                    int offset = offset(zoneId, seconds);
+                    seconds = toEpochSecond(EpochMath.truncate(seconds + offset, units[i]), zoneId, offset);
+                    nano = 0;
+                    if (roundUp) {
+                        // last millisecond before the next unit starts
+                        seconds = plus(seconds, units[i], 1, zoneId);
+                        seconds--;
+                        nano = 999_000_000;
+                    }
+                }
+            } else if (units[i] == DateUnit.MILLIS) {
+                long totalNanos = nano + Math.floorMod(amounts[i], 1000) * 1_000_000L;
+                seconds = EpochMath.checkRange(Math.addExact(seconds, Math.floorDiv(amounts[i], 1000) + totalNanos / EpochMath.NANOS_PER_SECOND));
+                nano = (int) (totalNanos % EpochMath.NANOS_PER_SECOND);
+            } else {
+                seconds = plus(seconds, units[i], amounts[i], zoneId);
+            }
+        }
+        return Instant.ofEpochSecond(seconds, nano);
+    }
+
+    /**
+     * Adds seconds and hours to the epoch time and calendar units to the local time, keeping the offset if it can.
+     */
+    private static long plus(long epochSecond, DateUnit unit, long amount, ZoneId zoneId) {
+        if (isFixedLength(unit)) {
+            return EpochMath.plus(epochSecond, unit, amount);
+        }
+        int offset = offset(zoneId, epochSecond);
+        return toEpochSecond(EpochMath.plus(epochSecond + offset, unit, amount), zoneId, offset);
+    }
+
+    /**
+     * @return true for units that are a fixed number of seconds and therefore added to the epoch time rather than the
+     *         local time, so that "now-1h" is always an hour ago, also across a dst change
+     */
+    private static boolean isFixedLength(DateUnit unit) {
+        return unit == DateUnit.MILLIS || unit == DateUnit.SECONDS || unit == DateUnit.HOURS;
+    }
+
+    private long resolveKeyword(long localNow) {
+        long today = Math.floorDiv(localNow, EpochMath.SECONDS_PER_DAY);
+        long civil;
+        switch (anchor) {
+        case START_OF_DAY:
+            return (today + anchorValue) * EpochMath.SECONDS_PER_DAY;
+        case MONTH:
+            civil = EpochMath.civil(today);
+            return EpochMath.plusMonths(EpochMath.epochDay(EpochMath.year(civil), EpochMath.month(civil), 1) * EpochMath.SECONDS_PER_DAY, anchorValue);
+        case YEAR:
+            civil = EpochMath.civil(today);
+            return EpochMath.epochDay(EpochMath.year(civil) + anchorValue, 1, 1) * EpochMath.SECONDS_PER_DAY;
+        case WEEK:
+            int dayOfWeek = EpochMath.dayOfWeek(today);
+            if (anchorValue == 0) {
+                // previous sunday
+                return (today - dayOfWeek) * EpochMath.SECONDS_PER_DAY;
+            } else {
+                // next sunday
+                return (today + 7 - dayOfWeek % 7) * EpochMath.SECONDS_PER_DAY;
+            }
+        default:
+            throw new IllegalStateException("unknown anchor " + anchor);
+        }
+    }
+
+    static int offset(ZoneId zoneId, long epochSecond) {
+        if (zoneId instanceof ZoneOffset) {
+            return ((ZoneOffset) zoneId).getTotalSeconds();
+        }
+        return ZoneTable.of(zoneId).offset(epochSecond);
+    }
+
+    /**
+     * Converts a local date time in seconds back to epoch seconds. Like ZonedDateTime, times in a gap are moved forward
+     * by the length of the gap and the earlier offset is used for times in an overlap.
+     */
+    static long toEpochSecond(long localSeconds, ZoneId zoneId) {
+        if (zoneId instanceof ZoneOffset) {
+            return localSeconds - ((ZoneOffset) zoneId).getTotalSeconds();
+        }
+        return ZoneTable.of(zoneId).toEpochSecond(localSeconds);
+    }
+
+    /**
+     * Like toEpochSecond(localSeconds, zoneId) but keeps the preferred offset when it is valid for the local time, so
+     * that e.g. rounding a time in the second pass of an overlap stays in the second pass like ZonedDateTime does.
+     *
+     * @param preferredOffset
+     *            offset in seconds
+     */
+    static long toEpochSecond(long localSeconds, ZoneId zoneId, int preferredOffset) {
+        if (zoneId instanceof ZoneOffset) {
+            return localSeconds - ((ZoneOffset) zoneId).getTotalSeconds();
+        }
+        return ZoneTable.of(zoneId).toEpochSecond(localSeconds, preferredOffset);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,231 @@
+package io.inbot.datemath;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Computes date histogram bucket keys: the start of the calendar bucket in a zone that a timestamp falls in, e.g. the
+ * start of the local day for "1d". Keys and timestamps are epoch millis.
+ *
+ * Intervals are an amount and one of the units that date math expressions use: ms, s, h, d, w (weeks start on monday),
+ * m or M (months) and y. Buckets of more than one unit are aligned to 1970-01-01 in local time (to monday 1969-12-29
+ * for weeks), so "3h" buckets start at 00:00, 03:00, etc. Buckets follow the local time, so with a region zone a "1d"
+ * bucket is 23 or 25 hours long on days with a dst change. Shorter buckets in the second pass of an overlap get keys in
+ * the second pass, like ZonedDateTime.truncatedTo.
+ *
+ * Fixed length units in fixed offset zones are pure arithmetic. Otherwise the offset comes from the precomputed
+ * transition table of the zone. Either way nothing is allocated per timestamp. Instances are immutable and thread
+ * safe.
+ */
+public final class DateBucketer {
+    private static final long MILLIS_PER_DAY = EpochMath.SECONDS_PER_DAY * 1000L;
+    // monday 1969-12-29
+    private static final long WEEK_PHASE = -3 * MILLIS_PER_DAY;
+
+    private final String interval;
+    private final ZoneId zone;
+    // null for fixed offset zones
+    private final ZoneTable table;
+    private final long offsetMillis;
+    // length of a bucket for fixed length units, 0 for months and years
+    private final long bucketMillis;
+    private final long phase;
+    // length of a bucket in months for months and years
+    private final long bucketMonths;
+
+    private DateBucketer(String interval, DateUnit unit, long amount, ZoneId zone) {
+        this.interval = interval;
+        this.zone = zone;
+        if (zone instanceof ZoneOffset || zone.getRules().isFixedOffset()) {
+            table = null;
+            offsetMillis = zone.getRules().getOffset(DateMath.AT_EPOCH).getTotalSeconds() * 1000L;
+        } else {
+            table = ZoneTable.of(zone);
+            offsetMillis = 0;
+        }
+        phase = unit == DateUnit.WEEKS ? WEEK_PHASE : 0;
+        switch (unit) {
+        case MONTHS:
+            bucketMillis = 0;
+            bucketMonths = amount;
+            break;
+        case YEARS:
+            bucketMillis = 0;
+            bucketMonths = amount * 12;
+            break;
+        default:
+            bucketMillis = amount * unitMillis(unit);
+            bucketMonths = 0;
+        }
+    }
+
+    /**
+     * @param interval
+     *            an amount and a unit like "1d", "3h" or "1M"; the amount defaults to 1
+     * @return bucketer for the interval in UTC
+     * @throws IllegalArgumentException
+     *             if the interval is not valid
+     */
+    public static DateBucketer of(String interval) {
+        return of(interval, ZoneOffset.UTC);
+    }
+
+    /**
+     * @param interval
+     *            an amount and a unit like "1d", "3h" or "1M"; the amount defaults to 1
+     * @param zone
+     *            zone in which the buckets are calendar days, weeks, etc.
+     * @return bucketer for the interval
+     * @throws IllegalArgumentException
+     *             if the interval is not valid
+     */
+    public static DateBucketer of(String interval, ZoneId zone) {
+        if (interval == null) {
+            throw new IllegalArgumentException("cannot parse empty string");
+        }
+        if (zone == null) {
+            zone = ZoneOffset.UTC;
+        }
+        String trimmed = interval.trim();
+        int digits = 0;
+        long amount = 0;
+        while (digits < trimmed.length() && trimmed.charAt(digits) >= '0' && trimmed.charAt(digits) <= '9' && amount <= Integer.MAX_VALUE) {
+            amount = amount * 10 + trimmed.charAt(digits++) - '0';
+        }
+        if (digits == 0) {
+            amount = 1;
+        }
+        if (amount < 1 || amount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("illegal amount. Should be between 1 and " + Integer.MAX_VALUE + ": " + interval);
+        }
+        DateUnit unit = DateUnit.of(trimmed.substring(digits).trim());
+        return new DateBucketer(trimmed, unit, amount, zone);
+    }
+
+    private static long unitMillis(DateUnit unit) {
+        switch (unit) {
+        case MILLIS:
+            return 1;
+        case SECONDS:
+            return 1000;
+        case HOURS:
+            return 3_600_000;
+        case DAYS:
+            return MILLIS_PER_DAY;
+        case WEEKS:
+            return 7 * MILLIS_PER_DAY;
+        default:
+            throw new IllegalArgumentException("unsupported unit " + unit);
+        }
+    }
+
+    /**
+     * @param epochMillis
+     *            timestamp
+     * @return start of the bucket that the timestamp falls in, in epoch millis
+     */
+    public long bucketKey(long epochMillis) {
+        long offset = offsetMillis(epochMillis);
+        long localMillis = epochMillis + offset;
+        long localKey;
+        if (bucketMillis > 0) {
+            localKey = Math.floorDiv(localMillis - phase, bucketMillis) * bucketMillis + phase;
+        } else {
+            long civil = EpochMath.civil(Math.floorDiv(localMillis, MILLIS_PER_DAY));
+            long months = (EpochMath.year(civil) - 1970) * 12 + EpochMath.month(civil) - 1;
+            localKey = monthStart(Math.floorDiv(months, bucketMonths) * bucketMonths);
+        }
+        // in the second pass of an overlap the key should be in the second pass as well
+        return toEpochMillis(localKey, offset);
+    }
+
+    /**
+     * @param bucketKey
+     *            a key returned by bucketKey
+     * @return the key of the next bucket, which is also the (exclusive) end of this one
+     */
+    public long nextBucketKey(long bucketKey) {
+        long offset = offsetMillis(bucketKey);
+        long localKey = bucketKey + offset;
+        long next;
+        if (bucketMillis > 0) {
+            next = toEpochMillis(localKey + bucketMillis, offset);
+        } else {
+            long civil = EpochMath.civil(Math.floorDiv(localKey, MILLIS_PER_DAY));
+            long months = (EpochMath.year(civil) - 1970) * 12 + EpochMath.month(civil) - 1;
+            next = toEpochMillis(monthStart(months + bucketMonths), offset);
+        }
+        if (table != null) {
+            // a bucket that starts before an overlap ends where the buckets of its second pass begin, e.g. at 01:00Z
+            // for 15 minute buckets in Berlin on 2015-10-25 rather than at 03:00 local time
+            long transition = table.transitionAfter(Math.floorDiv(bucketKey, 1000));
+            if (transition != Long.MAX_VALUE && transition * 1000 < next) {
+                long secondPass = bucketKey(transition * 1000);
+                if (secondPass > bucketKey) {
+                    return secondPass;
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @return epochMillis plus n buckets in local time, e.g. the same time of day n days later for "1d". Months are
+     *         clamped to the end of the month like LocalDateTime.plusMonths does.
+     */
+    long plusSteps(long epochMillis, long n) {
+        long offset = offsetMillis(epochMillis);
+        long localMillis = epochMillis + offset;
+        if (bucketMillis > 0) {
+            return toEpochMillis(Math.addExact(localMillis, Math.multiplyExact(n, bucketMillis)), offset);
+        }
+        long seconds = EpochMath.plusMonths(Math.floorDiv(localMillis, 1000), Math.multiplyExact(n, bucketMonths));
+        return toEpochMillis(seconds * 1000 + Math.floorMod(localMillis, 1000), offset);
+    }
+
+    /**
+     * @return the average length of a bucket in millis
+     */
+    double averageBucketMillis() {
+        // 146097 days in 4800 months
+        return bucketMillis > 0 ? bucketMillis : bucketMonths * 146_097.0 / 4800 * MILLIS_PER_DAY;
+    }
+
+    /**
+     * @return true if buckets always have the same length
+     */
+    boolean isFixedLength() {
+        return bucketMillis > 0 && table == null;
+    }
+
+    private static long monthStart(long monthsSince1970) {
+        return EpochMath.epochDay(1970 + Math.floorDiv(monthsSince1970, 12), (int) Math.floorMod(monthsSince1970, 12) + 1, 1) * MILLIS_PER_DAY;
+    }
+
+    private long offsetMillis(long epochMillis) {
+        if (table == null) {
+            return offsetMillis;
+        }
+        return table.offset(Math.floorDiv(epochMillis, 1000)) * 1000L;
+    }
+
+    /**
+     * Converts local millis back to epoch millis, keeping the preferred offset if it is valid for the local time.
+     */
+    private long toEpochMillis(long localMillis, long preferredOffsetMillis) {
+        if (table == null) {
+            return localMillis - offsetMillis;
+        }
+        long localSeconds = Math.floorDiv(localMillis, 1000);
+        return table.toEpochSecond(localSeconds, (int) (preferredOffsetMillis / 1000)) * 1000 + Math.floorMod(localMillis, 1000);
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public String toString() {
+        return "DateBucketer[" + interval + ", " + zone + "]";
+    }
+}
@@ -1,24 +1,21 @@
 package io.inbot.datemath;
 
-import java.time.DayOfWeek;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.DateTimeException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.Month;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.format.DateTimeParseException;
-import java.time.format.TextStyle;
-import java.time.temporal.ChronoField;
-import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalAdjusters;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Utility class to assist with parsing iso timestamps or expressions that manipulate such timestamps to a
@@ -35,11 +32,11 @@ public class DateMath {
     /**
      * 1st of January, 0 AD at 00:00 UTC
      */
-    public static final Instant AT_0AD=toInstant(LocalDateTime.of(0, 1, 1, 0, 0));
+    public static final Instant AT_0AD=Instant.ofEpochSecond(-62_167_219_200L);
     /**
      * 1st of January, 2000 at 00:00 UTC
      */
-    public static final Instant AT_Y2K=toInstant(LocalDateTime.of(2000, 1, 1, 0, 0));
+    public static final Instant AT_Y2K=Instant.ofEpochSecond(946_684_800L);
     /**
      * The latest time that can be represented in Unix's signed 32-bit integer time format is 03:14:07 UTC on Tuesday, 19 January 2038 (2,147,483,647 seconds after 1 January 1970)
      *
@@ -50,41 +47,46 @@ public class DateMath {
     /**
      * 31st of December, 9999 at 00:00 UTC, gives you some wiggle room to adjust to later timezones without getting 5 digits in the year.
      */
-    public static final Instant AT_Y10K=toInstant(LocalDateTime.of(9999, 12, 31, 0, 0));
+    public static final Instant AT_Y10K=Instant.ofEpochSecond(253_402_214_400L);
 
 
-    private static final Pattern DURATION_PATTERN = Pattern.compile("-?\\s*([0-9]+)\\s*([ms|s|h|d|w|m|y])");
-    private static final Pattern SUM_PATTERN = Pattern.compile("(.+)\\s*([\\+-])\\s*(.+)");
-    static final Pattern YEAR_MONTH_PATTERN = Pattern.compile("([0-9][0-9][0-9][0-9])([^0-9]([0-9][0-9]))?");
-
     /**
-     * Variant of DateTimeFormatter.ISO_INSTANT that always adds 3 fractionals for the milliseconds instead of 0, 3, 6, or 9.
+     * Returned by parseEpochMillis and parseEpochSecond when the input cannot be parsed.
      */
-    private static final DateTimeFormatter CONSISTENT_ISO_INSTANT=new DateTimeFormatterBuilder()
-            .parseCaseInsensitive()
-            .appendInstant(3)
-            .toFormatter();
-
-    private static final DateTimeFormatter CONSISTENT_ISO_INSTANT_NOMS=new DateTimeFormatterBuilder()
-            .parseCaseInsensitive()
-            .appendInstant(0)
-            .toFormatter();
+    public static final long INVALID_EPOCH = Long.MIN_VALUE;
 
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
 
-    private static final DateTimeFormatter SIMPLE_ISO_INSTANT=new DateTimeFormatterBuilder()
-            .appendValue(ChronoField.YEAR, 4)
-            .appendValue(ChronoField.MONTH_OF_YEAR, 2)
-            .appendValue(ChronoField.DAY_OF_MONTH, 2)
-            .appendValue(ChronoField.HOUR_OF_DAY, 2)
-            .appendValue(ChronoField.MINUTE_OF_HOUR, 2)
-            .appendValue(ChronoField.SECOND_OF_MINUTE, 2)
-            .toFormatter();
+    private static volatile DateMathCache cache;
+    private static volatile Clock clock = Clock.systemUTC();
 
     /**
      * @return now or the parsed Instant for whatever custom expression is configured
      */
     public static Instant now() {
-        return Instant.now();
+        return clock.instant();
+    }
+
+    /**
+     * Configure the clock that parse, parseEpochMillis and now use when you don't pass a reference time. Defaults to
+     * the system clock. Use a CachedClock to avoid reading the system clock on every call or a fixed clock in tests.
+     * Only the instant of the clock is used; the zone is ignored.
+     *
+     * @param defaultClock
+     *            the clock
+     */
+    public static void setClock(Clock defaultClock) {
+        if (defaultClock == null) {
+            throw new IllegalArgumentException("clock should not be null");
+        }
+        clock = defaultClock;
+    }
+
+    /**
+     * @return the clock used when no reference time is passed
+     */
+    public static Clock getClock() {
+        return clock;
     }
 
     public static String formatIsoDate(OffsetDateTime date) {
@@ -100,8 +102,100 @@ public class DateMath {
         return formatIsoDate(time.toInstant(ZoneOffset.UTC));
     }
 
+    /**
+     * @param instant
+     *            an instant between the years 0 and 9999
+     * @return the instant in UTC as "yyyyMMddHHmmss", e.g. "19741020000000"; handy for file names and object keys
+     */
     public static String formatSimpleIsoTimestamp(Instant instant) {
-        return SIMPLE_ISO_INSTANT.format(instant.atZone(ZoneOffset.UTC));
+        return IsoFormat.formatSimple(instant.getEpochSecond());
+    }
+
+    public static String formatSimpleIsoTimestamp(long timeInMillisSinceEpoch) {
+        return IsoFormat.formatSimple(Math.floorDiv(timeInMillisSinceEpoch, 1000));
+    }
+
+    /**
+     * Appends the same timestamp as formatSimpleIsoTimestamp(long) without creating any intermediate objects.
+     *
+     * @param timeInMillisSinceEpoch
+     *            epoch millis between the years 0 and 9999
+     * @param out
+     *            the 14 digits are appended to this
+     */
+    public static void formatSimpleIsoTimestamp(long timeInMillisSinceEpoch, StringBuilder out) {
+        IsoFormat.formatSimple(Math.floorDiv(timeInMillisSinceEpoch, 1000), out);
+    }
+
+    /**
+     * Writes the same timestamp as formatSimpleIsoTimestamp(long) as ascii bytes without creating any intermediate
+     * objects.
+     *
+     * @param timeInMillisSinceEpoch
+     *            epoch millis between the years 0 and 9999
+     * @param buf
+     *            buffer; needs room for 14 bytes
+     * @param off
+     *            offset in the buffer to start writing
+     * @return the offset after the last written byte
+     */
+    public static int formatSimpleIsoTimestamp(long timeInMillisSinceEpoch, byte[] buf, int off) {
+        return IsoFormat.formatSimple(Math.floorDiv(timeInMillisSinceEpoch, 1000), buf, off);
+    }
+
+    /**
+     * @param text
+     *            a timestamp as written by formatSimpleIsoTimestamp, e.g. "19741020000000"
+     * @return the instant; the timestamp is in UTC
+     * @throws IllegalArgumentException
+     *             if the text is not 14 digits for a valid date and time
+     */
+    public static Instant parseSimpleIsoTimestamp(String text) {
+        long epochMillis = parseSimpleIsoTimestampMillis(text);
+        if (epochMillis == INVALID_EPOCH) {
+            throw new IllegalArgumentException("not a yyyyMMddHHmmss timestamp: " + text);
+        }
+        return Instant.ofEpochMilli(epochMillis);
+    }
+
+    /**
+     * @param text
+     *            a timestamp as written by formatSimpleIsoTimestamp, e.g. "19741020000000"
+     * @return epoch millis; the timestamp is in UTC. Returns INVALID_EPOCH if the text is not 14 digits for a valid
+     *         date and time.
+     */
+    public static long parseSimpleIsoTimestampMillis(CharSequence text) {
+        if (text == null) {
+            return INVALID_EPOCH;
+        }
+        long epochSecond = IsoFormat.parseSimple(text);
+        return epochSecond == INVALID_EPOCH ? INVALID_EPOCH : epochSecond * 1000;
+    }
+
+    /**
+     * Like parseSimpleIsoTimestampMillis(CharSequence) but reads ascii bytes directly, e.g. from a file name or object
+     * key.
+     *
+     * @param buf
+     *            bytes
+     * @param off
+     *            offset of the first digit
+     * @param len
+     *            number of bytes; anything but 14 is invalid
+     * @return epoch millis or INVALID_EPOCH
+     */
+    public static long parseSimpleIsoTimestampMillis(byte[] buf, int off, int len) {
+        if (buf == null) {
+            return INVALID_EPOCH;
+        }
+        if (off < 0 || len < 0 || off > buf.length - len) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + buf.length);
+        }
+        if (len != IsoFormat.SIMPLE_LENGTH) {
+            return INVALID_EPOCH;
+        }
+        long epochSecond = IsoFormat.parseSimple(buf, off);
+        return epochSecond == INVALID_EPOCH ? INVALID_EPOCH : epochSecond * 1000;
     }
 
     public static String formatIsoDate(LocalDateTime time) {
@@ -117,49 +211,100 @@ public class DateMath {
      * @return iso instant of the form "1974-10-20T00:00:00.000Z" with 3 fractionals, always.
      */
     public static String formatIsoDate(Instant date) {
-        return CONSISTENT_ISO_INSTANT.format(date.atZone(ZoneOffset.UTC));
+        return IsoFormat.format(date.getEpochSecond(), date.getNano() / 1_000_000, true);
     }
 
     public static String formatIsoDateNoMs(Instant date) {
-        return CONSISTENT_ISO_INSTANT_NOMS.format(date.atZone(ZoneOffset.UTC));
+        return IsoFormat.format(date.getEpochSecond(), 0, false);
     }
 
     public static String formatIsoDate(long timeInMillisSinceEpoch) {
-        return formatIsoDate(Instant.ofEpochMilli(timeInMillisSinceEpoch));
+        long epochSecond = Math.floorDiv(timeInMillisSinceEpoch, 1000);
+        return IsoFormat.format(epochSecond, (int) (timeInMillisSinceEpoch - epochSecond * 1000), true);
     }
 
-    private static final ZoneId UTC = ZoneId.of("Z");
-    private static Instant flexibleInstantParse(String text, ZoneId zoneId) throws DateTimeParseException {
-        try {
-            return Instant.parse(text);
-        } catch (DateTimeParseException e) {
+    /**
+     * Appends the same iso instant as formatIsoDate(long) without creating any intermediate objects.
+     *
+     * @param timeInMillisSinceEpoch
+     *            epoch millis
+     * @param out
+     *            the iso instant is appended to this
+     */
+    public static void formatIsoDate(long timeInMillisSinceEpoch, StringBuilder out) {
+        long epochSecond = Math.floorDiv(timeInMillisSinceEpoch, 1000);
+        IsoFormat.format(epochSecond, (int) (timeInMillisSinceEpoch - epochSecond * 1000), true, out);
+    }
 
-            if(zoneId == null) {
-                zoneId=UTC;
-            }
-            try {
-                // try LocalDate
-                LocalDate localDate = LocalDate.parse(text);
-                LocalDateTime localDateTime = LocalDateTime.of(localDate, LocalTime.MIDNIGHT);
-
-                return localDateTime.toInstant(ZoneOffset.of(zoneId.getId()));
-            } catch (DateTimeParseException e1) {
-                // try LocalTime
-                LocalTime localTime = LocalTime.parse(text);
-                LocalDate today = LocalDate.now(zoneId);
-                LocalDateTime localDateTime = LocalDateTime.of(today, localTime);
-                return localDateTime.toInstant(ZoneOffset.of(zoneId.getId()));
-            }
-        }
+    /**
+     * Writes the same iso instant as formatIsoDate(long) to a char array without creating any intermediate objects.
+     *
+     * @param timeInMillisSinceEpoch
+     *            epoch millis
+     * @param buf
+     *            buffer; needs room for 24 chars (more for years before 0 or after 9999)
+     * @param off
+     *            offset in the buffer to start writing
+     * @return the offset after the last written char
+     */
+    public static int formatIsoDate(long timeInMillisSinceEpoch, char[] buf, int off) {
+        long epochSecond = Math.floorDiv(timeInMillisSinceEpoch, 1000);
+        return IsoFormat.format(epochSecond, (int) (timeInMillisSinceEpoch - epochSecond * 1000), true, buf, off);
+    }
+
+    /**
+     * Writes the same iso instant as formatIsoDate(long) as ascii bytes without creating any intermediate objects.
+     *
+     * @param timeInMillisSinceEpoch
+     *            epoch millis
+     * @param buf
+     *            buffer; needs room for 24 bytes (more for years before 0 or after 9999)
+     * @param off
+     *            offset in the buffer to start writing
+     * @return the offset after the last written byte
+     */
+    public static int formatIsoDate(long timeInMillisSinceEpoch, byte[] buf, int off) {
+        long epochSecond = Math.floorDiv(timeInMillisSinceEpoch, 1000);
+        return IsoFormat.format(epochSecond, (int) (timeInMillisSinceEpoch - epochSecond * 1000), true, buf, off);
     }
 
+    /**
+     * @param text
+     *            an expression
+     * @return true if parse would accept the text
+     */
     public static boolean isValid(String text) {
-        try {
-            parse(text);
-            return true;
-        } catch (RuntimeException e) {
-            return false;
+        return validate(text).isValid();
+    }
+
+    /**
+     * Checks the same things as parse without throwing and catching exceptions for invalid input, which makes it cheap
+     * to use on untrusted or half typed input.
+     *
+     * @param text
+     *            an expression
+     * @return a ValidationResult that is valid exactly when parse would succeed; otherwise it has an error code, the
+     *         offset in the text where the problem starts and the message parse would throw.
+     */
+    public static ValidationResult validate(String text) {
+        if (text == null) {
+            return new ValidationResult(ValidationResult.Error.EMPTY, 0, "cannot parse empty string");
+        }
+        ParseError error = new ParseError();
+        DateMathCache dateMathCache = cache;
+        CompiledDateMath compiled = dateMathCache != null ? dateMathCache.get(text, error) : compile(text, 0, error);
+        if (compiled == null) {
+            return error.toResult();
         }
+        if (compiled.hasAdjustments()) {
+            // only absurdly large amounts end up out of range
+            try {
+                compiled.evaluate(clock.instant(), ZoneOffset.UTC);
+            } catch (DateTimeException | ArithmeticException e) {
+                return new ValidationResult(ValidationResult.Error.OUT_OF_RANGE, 0, e.getMessage());
+            }
+        }
+        return ValidationResult.VALID;
     }
 
     /**
@@ -167,174 +312,404 @@ public class DateMath {
      * @return Instant; any relative expressions are interpreted to be in the UTC timezone.
      */
     public static Instant parse(String text) {
-        return parse(text, ZoneOffset.UTC);
+        return parse(text, clock.instant(), ZoneOffset.UTC);
     }
 
+    /**
+     * @param text
+     *            any expression
+     * @param zoneId
+     *            zone id or short id like "CET"; resolved zones are cached so repeatedly passing the same id is cheap
+     * @return Instant
+     */
     public static Instant parse(String text, String zoneId) {
-        ZoneId zone = ZoneId.of(zoneId, ZoneId.SHORT_IDS);
-        return parse(text, zone);
-    }
-
-    private static Instant parseYearMonth(String text, ZoneId zoneId) {
-        Matcher matcher = YEAR_MONTH_PATTERN.matcher(text);
-        if(matcher.matches()) {
-            String year = matcher.group(1);
-            String month = matcher.group(3);
-            int yearInt = Integer.valueOf(year);
-            int monthInt = 1;
-            if(month!=null) {
-                monthInt=Integer.valueOf(month);
-            }
-            int day=1;
+        return parse(text, clock.instant(), ZoneIds.of(zoneId));
+    }
 
-            LocalDate localDate = LocalDate.of(yearInt, monthInt, day);
-            LocalDateTime localDateTime = LocalDateTime.of(localDate, LocalTime.MIDNIGHT);
-            return localDateTime.toInstant(ZoneOffset.of(zoneId.getId()));
-        }
+    /**
+     * @param text
+     *            any expression
+     * @param zone
+     *            zone used to interpret dates, times and relative expressions
+     * @return Instant
+     */
+    public static Instant parse(String text, ZoneId zone) {
+        return parse(text, clock.instant(), zone);
+    }
 
-        return null;
+    /**
+     * Parse relative to a reference instant instead of the current time. Evaluate several expressions against the
+     * same reference instant to get consistent results, e.g. for the bounds of a range.
+     *
+     * @param text
+     *            any expression
+     * @param now
+     *            the instant that relative expressions are resolved against
+     * @return Instant; any relative expressions are interpreted to be in the UTC timezone.
+     */
+    public static Instant parse(String text, Instant now) {
+        return parse(text, now, ZoneOffset.UTC);
     }
 
-    private static Instant parse(String text, ZoneId zone) {
-        if (text == null) {
-            throw new IllegalArgumentException("cannot parse empty string");
+    /**
+     * @param text
+     *            any expression
+     * @param referenceClock
+     *            provides the instant that relative expressions are resolved against and the zone they are interpreted
+     *            in; e.g. Clock.fixed(now, zone)
+     * @return Instant
+     */
+    public static Instant parse(String text, Clock referenceClock) {
+        return parse(text, referenceClock.instant(), referenceClock.getZone());
+    }
+
+    /**
+     * @param text
+     *            any expression
+     * @param now
+     *            the instant that relative expressions are resolved against
+     * @param zone
+     *            zone used to interpret dates, times and relative expressions
+     * @return Instant
+     */
+    public static Instant parse(String text, Instant now, ZoneId zone) {
+        return parse(text, now, zone, false);
+    }
+
+    /**
+     * @param text
+     *            a range like "now-7d..now", "2015-01-01/2015-02-01" or "beginning month to now"
+     * @return the Interval; both ends are resolved against the same now in UTC
+     * @throws IllegalArgumentException
+     *             if the range or one of its ends is not valid, or the end is before the start
+     */
+    public static Interval parseRange(String text) {
+        return parseRange(text, clock.instant(), ZoneOffset.UTC);
+    }
+
+    /**
+     * @param text
+     *            a range like "now-7d..now", "2015-01-01/2015-02-01" or "beginning month to now"
+     * @param zone
+     *            zone used to interpret dates, times and relative expressions
+     * @return the Interval; both ends are resolved against the same now
+     * @throws IllegalArgumentException
+     *             if the range or one of its ends is not valid, or the end is before the start
+     */
+    public static Interval parseRange(String text, ZoneId zone) {
+        return parseRange(text, clock.instant(), zone);
+    }
+
+    /**
+     * Parses two expressions separated by "..", "/" (like iso 8601 intervals) or " to ". Since the end is exclusive,
+     * rounding in it goes down: "now-7d/d..now/d" is the last seven whole days.
+     *
+     * @param text
+     *            a range like "now-7d..now", "2015-01-01/2015-02-01" or "beginning month to now"
+     * @param now
+     *            the instant that relative expressions at both ends are resolved against
+     * @param zone
+     *            zone used to interpret dates, times and relative expressions
+     * @return the Interval
+     * @throws IllegalArgumentException
+     *             if the range or one of its ends is not valid, or the end is before the start
+     */
+    public static Interval parseRange(String text, Instant now, ZoneId zone) {
+        return Interval.parse(text, now, zone);
+    }
+
+    /**
+     * Use this to resolve Elasticsearch style range bounds: rounding like "now-1d/d" goes to the last millisecond of
+     * the unit instead of its start when roundUp is true. Like Elasticsearch, round up for the lte and gt bounds and
+     * down for gte and lt.
+     *
+     * @param text
+     *            any expression
+     * @param now
+     *            the instant that relative expressions are resolved against
+     * @param zone
+     *            zone used to interpret dates, times, relative expressions and rounding
+     * @param roundUp
+     *            round to the end of the unit instead of the start
+     * @return Instant
+     */
+    public static Instant parse(String text, Instant now, ZoneId zone, boolean roundUp) {
+        DateMathCache dateMathCache = cache;
+        CompiledDateMath compiled = dateMathCache != null ? dateMathCache.get(text) : compile(text);
+        return compiled.evaluate(now, zone, roundUp);
+    }
+
+    /**
+     * Offsets of region zones like "Europe/Berlin" are looked up in tables of their transitions that are built on first
+     * use. They cover 1900 until 2100 by default; anything outside of that range is slower but still correct.
+     *
+     * @param fromYear
+     *            first year covered by the tables
+     * @param toYear
+     *            last year covered by the tables
+     */
+    public static void setZoneTableRange(int fromYear, int toYear) {
+        ZoneTable.setRange(fromYear, toYear);
+    }
+
+    /**
+     * Configure a cache for the compiled expressions used by parse and isValid. Disabled by default.
+     *
+     * @param dateMathCache
+     *            the cache or null to disable caching
+     */
+    public static void setCache(DateMathCache dateMathCache) {
+        cache = dateMathCache;
+    }
+
+    /**
+     * @return the cache used by parse or null if caching is disabled
+     */
+    public static DateMathCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Parse straight to epoch milliseconds. Iso timestamps, dates, times and simple expressions like "now-1d" are
+     * handled with primitive arithmetic only and without creating any objects. Anything else is parsed like parse
+     * does.
+     *
+     * @param text
+     *            any expression supported by parse
+     * @return epoch millis; any relative expressions are interpreted to be in the UTC timezone. Returns INVALID_EPOCH
+     *         instead of throwing an exception if the text cannot be parsed.
+     */
+    public static long parseEpochMillis(CharSequence text) {
+        return EpochParser.parseEpochMillis(text, clock.millis());
+    }
+
+    /**
+     * Like parseEpochMillis(CharSequence) but reads ascii (or utf-8) bytes directly, so there is no need to decode them
+     * to a String first.
+     *
+     * @param buf
+     *            bytes
+     * @param off
+     *            offset of the first byte of the expression
+     * @param len
+     *            number of bytes
+     * @return epoch millis or INVALID_EPOCH if the bytes cannot be parsed.
+     */
+    public static long parseEpochMillis(byte[] buf, int off, int len) {
+        return EpochParser.parseEpochMillis(buf, off, len, clock.millis());
+    }
+
+    /**
+     * Like parseEpochMillis(byte[], int, int) for heap or direct buffers.
+     *
+     * @param buf
+     *            buffer; off is an absolute index and the position of the buffer is neither used nor changed
+     * @param off
+     *            index of the first byte of the expression
+     * @param len
+     *            number of bytes
+     * @return epoch millis or INVALID_EPOCH if the bytes cannot be parsed.
+     */
+    public static long parseEpochMillis(ByteBuffer buf, int off, int len) {
+        return EpochParser.parseEpochMillis(buf, off, len, clock.millis());
+    }
+
+    /**
+     * Like parseEpochMillis but relative to a reference time instead of the current time.
+     *
+     * @param text
+     *            any expression supported by parse
+     * @param nowMillis
+     *            epoch millis that relative expressions are resolved against
+     * @return epoch millis or INVALID_EPOCH if the text cannot be parsed.
+     */
+    public static long parseEpochMillis(CharSequence text, long nowMillis) {
+        return EpochParser.parseEpochMillis(text, nowMillis);
+    }
+
+    /**
+     * Like parseEpochMillis but returns seconds.
+     *
+     * @param text
+     *            any expression supported by parse
+     * @return epoch seconds or INVALID_EPOCH if the text cannot be parsed.
+     */
+    public static long parseEpochSecond(CharSequence text) {
+        return EpochParser.parseEpochSecond(text, clock.millis());
+    }
+
+    /**
+     * Parse many expressions to epoch millis relative to the same reference time, read once from the configured
+     * clock. Elements that cannot be parsed get INVALID_EPOCH.
+     *
+     * @param in
+     *            expressions; null elements are invalid
+     * @param outEpochMillis
+     *            receives the result for in[i] at index i; needs at least as many elements as in
+     * @return the number of elements that could not be parsed
+     */
+    public static int parseAll(CharSequence[] in, long[] outEpochMillis) {
+        return parseAll(in, outEpochMillis, clock.millis(), null);
+    }
+
+    /**
+     * @param in
+     *            expressions; null elements are invalid
+     * @param outEpochMillis
+     *            receives the result for in[i] at index i; needs at least as many elements as in
+     * @param nowMillis
+     *            epoch millis that relative expressions are resolved against
+     * @param errors
+     *            optional; the bit for each element that could not be parsed is set and the others are cleared
+     * @return the number of elements that could not be parsed
+     */
+    public static int parseAll(CharSequence[] in, long[] outEpochMillis, long nowMillis, BitSet errors) {
+        BulkParser.checkOutput(in.length, outEpochMillis);
+        if (errors != null) {
+            errors.clear(0, in.length);
         }
-        text = text.trim();
-
-        try {
-            return flexibleInstantParse(text, zone);
-        } catch (DateTimeParseException e) {
-            Instant ym = parseYearMonth(text,zone);
-            if(ym!=null) {
-                return ym;
-            } else {
-                return toInstant(parseRelativeTime(text, zone));
-            }
+        return BulkParser.parseAll(in, 0, in.length, outEpochMillis, nowMillis, errors);
+    }
+
+    /**
+     * @param in
+     *            expressions; null elements are invalid
+     * @param outEpochMillis
+     *            receives the result for in.get(i) at index i; needs at least as many elements as in
+     * @param nowMillis
+     *            epoch millis that relative expressions are resolved against
+     * @param errors
+     *            optional; the bit for each element that could not be parsed is set and the others are cleared
+     * @return the number of elements that could not be parsed
+     */
+    public static int parseAll(List<? extends CharSequence> in, long[] outEpochMillis, long nowMillis, BitSet errors) {
+        int size = in.size();
+        BulkParser.checkOutput(size, outEpochMillis);
+        if (errors != null) {
+            errors.clear(0, size);
         }
+        return BulkParser.parseAll(in, 0, size, outEpochMillis, nowMillis, errors);
     }
 
-    private static LocalDateTime parseRelativeTime(String text, ZoneId zoneId) {
-        if(zoneId == null) {
-            zoneId=ZoneOffset.UTC;
+    /**
+     * Like parseAll but splits the input in chunks of 4096 elements that are parsed in parallel on the common
+     * ForkJoinPool. The results are the same as for parseAll with the same reference time.
+     *
+     * @param in
+     *            expressions; null elements are invalid
+     * @param outEpochMillis
+     *            receives the result for in[i] at index i; needs at least as many elements as in
+     * @param nowMillis
+     *            epoch millis that relative expressions are resolved against
+     * @param errors
+     *            optional; the bit for each element that could not be parsed is set and the others are cleared
+     * @return the number of elements that could not be parsed
+     */
+    public static int parallelParseAll(CharSequence[] in, long[] outEpochMillis, long nowMillis, BitSet errors) {
+        return parallelParseAll(in, outEpochMillis, nowMillis, errors, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param in
+     *            expressions; null elements are invalid
+     * @param outEpochMillis
+     *            receives the result for in[i] at index i; needs at least as many elements as in
+     * @param nowMillis
+     *            epoch millis that relative expressions are resolved against
+     * @param errors
+     *            optional; the bit for each element that could not be parsed is set and the others are cleared
+     * @param pool
+     *            pool to parse on
+     * @param chunkSize
+     *            maximum number of elements parsed by a single task
+     * @return the number of elements that could not be parsed
+     */
+    public static int parallelParseAll(CharSequence[] in, long[] outEpochMillis, long nowMillis, BitSet errors, ForkJoinPool pool, int chunkSize) {
+        BulkParser.checkOutput(in.length, outEpochMillis);
+        if (errors != null) {
+            errors.clear(0, in.length);
         }
-        LocalDateTime now=LocalDateTime.ofInstant(Instant.now(), zoneId);
-        switch (text.replace('_', ' ').toLowerCase(Locale.ENGLISH)) {
-        case "min":
-            return LocalDateTime.of(0, 01, 01, 0, 0);
-        case "max":
-            return LocalDateTime.of(9999, 12, 31, 0, 0);
-        case "distant past":
-            return LocalDateTime.ofInstant(Instant.EPOCH, zoneId);
-        case "distant future":
-            return LocalDateTime.of(9999, 12, 31, 0, 0);
-        case "morning":
-            return parseRelativeTime("09:00", zoneId);
-        case "midnight":
-            return parseRelativeTime("00:00", zoneId);
-        case "noon":
-            return parseRelativeTime("12:00", zoneId);
-        case "now":
-            return now;
-        case "beginning month":
-            return now.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.firstDayOfMonth());
-        case "end month":
-            return now.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.firstDayOfNextMonth());
-        case "beginning year":
-            return now.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.firstDayOfYear());
-        case "end year":
-            return now.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.firstDayOfNextYear());
-        case "beginning week":
-            return now.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previous(DayOfWeek.SUNDAY));
-        case "end week":
-            return now.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.next(DayOfWeek.SUNDAY));
-        case "tomorrow":
-            return now.truncatedTo(ChronoUnit.DAYS).truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS);
-        case "day after tomorrow":
-            return now.truncatedTo(ChronoUnit.DAYS).truncatedTo(ChronoUnit.DAYS).plus(2, ChronoUnit.DAYS);
-        case "yesterday":
-            return now.truncatedTo(ChronoUnit.DAYS).truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
-        case "day before yesterday":
-            return now.truncatedTo(ChronoUnit.DAYS).truncatedTo(ChronoUnit.DAYS).minus(2, ChronoUnit.DAYS);
-        case "next month":
-            return parseRelativeTime("1m", zoneId);
-        case "last month":
-            return parseRelativeTime("-1m",zoneId);
-        case "next year":
-            return parseRelativeTime("1y",zoneId);
-        case "last year":
-            return parseRelativeTime("-1y",zoneId);
-        default:
-            Matcher durationMatcher = DURATION_PATTERN.matcher(text);
-            if (durationMatcher.matches()) {
-                // relative to now
-                boolean minus = text.startsWith("-");
-                int amount = Integer.valueOf(durationMatcher.group(1));
-                String unit = durationMatcher.group(2);
-                return adjust(now, minus, amount, unit);
-            } else {
-
-                Matcher sumMatcher = SUM_PATTERN.matcher(text);
-                if(sumMatcher.matches()) {
-                    String left = sumMatcher.group(1);
-                    String operator = sumMatcher.group(2);
-                    String right = sumMatcher.group(3);
-                    Instant offset = parse(left);
-                    boolean minus = operator.equals("-");
-                    Matcher rightHandSideMatcher = DURATION_PATTERN.matcher(right);
-                    if(rightHandSideMatcher.matches()) {
-                        int amount = Integer.valueOf(rightHandSideMatcher.group(1));
-                        String unit = rightHandSideMatcher.group(2);
-
-                        return adjust( LocalDateTime.ofInstant(offset, zoneId), minus, amount, unit);
-                    } else {
-                        throw new IllegalArgumentException("illegal duration. Should match ([0-9]+)([s|h|d|w|m|y]): " + right);
-                    }
-                }
-            }
+        return BulkParser.parallelParseAll(in, null, in.length, outEpochMillis, nowMillis, errors, pool, chunkSize);
+    }
+
+    /**
+     * @param in
+     *            expressions; null elements are invalid. Lists that don't support fast random access are copied to an
+     *            array first.
+     * @param outEpochMillis
+     *            receives the result for in.get(i) at index i; needs at least as many elements as in
+     * @param nowMillis
+     *            epoch millis that relative expressions are resolved against
+     * @param errors
+     *            optional; the bit for each element that could not be parsed is set and the others are cleared
+     * @param pool
+     *            pool to parse on
+     * @param chunkSize
+     *            maximum number of elements parsed by a single task
+     * @return the number of elements that could not be parsed
+     */
+    public static int parallelParseAll(List<? extends CharSequence> in, long[] outEpochMillis, long nowMillis, BitSet errors, ForkJoinPool pool,
+            int chunkSize) {
+        if (!(in instanceof RandomAccess)) {
+            return parallelParseAll(in.toArray(new CharSequence[in.size()]), outEpochMillis, nowMillis, errors, pool, chunkSize);
         }
-        throw new IllegalArgumentException("illegal time expression " + text);
-
-    }
-
-    private static LocalDateTime adjust(LocalDateTime now, boolean minus, int amount, String unit) {
-        ChronoUnit chronoUnit;
-        switch (unit) {
-        case "ms":
-            chronoUnit = ChronoUnit.MILLIS;
-            break;
-        case "s":
-            chronoUnit = ChronoUnit.SECONDS;
-            break;
-        case "h":
-            chronoUnit = ChronoUnit.HOURS;
-            break;
-        case "d":
-            chronoUnit = ChronoUnit.DAYS;
-            break;
-        case "w":
-            chronoUnit = ChronoUnit.DAYS;
-            amount = amount * 7;
-            break;
-        case "m":
-            if (minus) {
-                return now.minusMonths(amount);
-            } else {
-                return now.plusMonths(amount);
-            }
-        case "y":
-            if (minus) {
-                return now.minusYears(amount);
-            } else {
-                return now.plusYears(amount);
-            }
-        default:
-            throw new IllegalArgumentException("illegal time unit. Should be [ms|s|h|d|w|m|y]: ");
+        int size = in.size();
+        BulkParser.checkOutput(size, outEpochMillis);
+        if (errors != null) {
+            errors.clear(0, size);
+        }
+        return BulkParser.parallelParseAll(null, in, size, outEpochMillis, nowMillis, errors, pool, chunkSize);
+    }
+
+    /**
+     * @param in
+     *            expressions; null elements are invalid
+     * @param nowMillis
+     *            epoch millis that relative expressions are resolved against
+     * @param errors
+     *            optional; the bit for each element that could not be parsed is set and the others are cleared
+     * @return epoch millis for each element in the order of the iterator, INVALID_EPOCH for elements that could not be
+     *         parsed
+     */
+    public static long[] parseAll(Iterator<? extends CharSequence> in, long nowMillis, BitSet errors) {
+        if (errors != null) {
+            errors.clear();
+        }
+        return BulkParser.parseAll(in, nowMillis, errors);
+    }
+
+    /**
+     * Parse an expression once so you can evaluate it many times without having to parse it again.
+     *
+     * @param text
+     *            any expression supported by parse
+     * @return a CompiledDateMath that can be evaluated against any reference instant and zone.
+     * @throws IllegalArgumentException
+     *             if the expression is not valid
+     */
+    public static CompiledDateMath compile(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("cannot parse empty string");
         }
-        if (minus) {
-            return now.minus(amount, chronoUnit);
-        } else {
-            return now.plus(amount, chronoUnit);
+        ParseError error = new ParseError();
+        CompiledDateMath compiled = compile(text, 0, error);
+        if (compiled == null) {
+            throw new IllegalArgumentException(error.message);
         }
+        return compiled;
+    }
+
+    /**
+     * @param text
+     *            the expression or a part of it
+     * @param base
+     *            offset of text in the original expression; used for error offsets
+     * @param error
+     *            receives the problem if the text cannot be compiled
+     * @return the compiled expression or null if it is invalid
+     */
+    static CompiledDateMath compile(String text, int base, ParseError error) {
+        return ExpressionParser.compile(text, base, error);
     }
 
     public static Instant toInstant(LocalDate date) {
@@ -346,16 +721,21 @@ public class DateMath {
     }
 
     public static String renderWeekYear(Instant t, ZoneId zoneId, Locale locale) {
-        LocalDateTime ld = LocalDateTime.ofInstant(t, zoneId);
-        int week = ld.get(ChronoField.ALIGNED_WEEK_OF_YEAR);
-        int year = ld.get(ChronoField.YEAR);
+        long civil = localCivilDate(t, zoneId);
+        long year = EpochMath.year(civil);
+        long dayOfYear = EpochMath.epochDay(year, EpochMath.month(civil), EpochMath.day(civil)) - EpochMath.epochDay(year, 1, 1);
+        // same as ChronoField.ALIGNED_WEEK_OF_YEAR
+        long week = dayOfYear / 7 + 1;
         return week + ", " + year;
     }
 
     public static String renderMonthYear(Instant t, ZoneId zoneId, Locale locale) {
-        LocalDateTime ld = LocalDateTime.ofInstant(t, zoneId);
-        int month = ld.get(ChronoField.MONTH_OF_YEAR);
-        int year = ld.get(ChronoField.YEAR);
-        return Month.of(month).getDisplayName(TextStyle.FULL, locale) + ", " + year;
+        long civil = localCivilDate(t, zoneId);
+        return PeriodLabelRenderer.monthNames(locale)[EpochMath.month(civil) - 1] + ", " + EpochMath.year(civil);
+    }
+
+    private static long localCivilDate(Instant t, ZoneId zoneId) {
+        long localSeconds = t.getEpochSecond() + CompiledDateMath.offset(zoneId, t.getEpochSecond());
+        return EpochMath.civil(Math.floorDiv(localSeconds, EpochMath.SECONDS_PER_DAY));
     }
 }
@@ -0,0 +1,160 @@
+package io.inbot.datemath;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread safe cache of compiled expressions. Enable it with DateMath.setCache(new DateMathCache(1000)) so that
+ * parse only has to compile each distinct expression once.
+ *
+ * Only the compiled form is cached, never the resulting Instant. So relative expressions like "now-1d" are still
+ * evaluated against the current time (and zone) on every call. Since the compiled form does not depend on the zone, the
+ * expression text is all that is needed as a key.
+ *
+ * The cache is split in segments that each evict their least recently used entry when they are full. Hits, misses and
+ * evictions are counted so you can size the cache.
+ */
+public final class DateMathCache {
+    private final Segment[] segments;
+    private final int mask;
+    private final int maximumSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize
+     *            maximum number of compiled expressions to keep; rounded up to a multiple of the number of segments
+     */
+    public DateMathCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize should be at least 1");
+        }
+        this.maximumSize = maximumSize;
+        // small caches get a single segment so the bound is exact
+        int segmentCount = 1;
+        while (segmentCount < 16 && segmentCount * 64 < maximumSize) {
+            segmentCount <<= 1;
+        }
+        segments = new Segment[segmentCount];
+        int segmentSize = (maximumSize + segmentCount - 1) / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        mask = segmentCount - 1;
+    }
+
+    /**
+     * @param expression
+     *            the expression
+     * @return the cached compiled expression or a newly compiled one
+     * @throws IllegalArgumentException
+     *             if the expression is not valid; invalid expressions are not cached
+     */
+    public CompiledDateMath get(String expression) {
+        if (expression == null) {
+            return DateMath.compile(expression);
+        }
+        ParseError error = new ParseError();
+        CompiledDateMath compiled = get(expression, error);
+        if (compiled == null) {
+            throw new IllegalArgumentException(error.message);
+        }
+        return compiled;
+    }
+
+    /**
+     * @return the cached or newly compiled expression or null if it is not valid, in which case error is filled in
+     */
+    CompiledDateMath get(String expression, ParseError error) {
+        Segment segment = segmentFor(expression);
+        CompiledDateMath compiled;
+        synchronized (segment) {
+            compiled = segment.get(expression);
+        }
+        if (compiled != null) {
+            hits.increment();
+            return compiled;
+        }
+        misses.increment();
+        // compile outside the lock; worst case two threads compile the same thing
+        compiled = DateMath.compile(expression, 0, error);
+        if (compiled == null) {
+            return null;
+        }
+        synchronized (segment) {
+            CompiledDateMath existing = segment.putIfAbsent(expression, compiled);
+            return existing != null ? existing : compiled;
+        }
+    }
+
+    private Segment segmentFor(String expression) {
+        int h = expression.hashCode();
+        return segments[(h ^ h >>> 16) & mask];
+    }
+
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the number of cached expressions
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Removes all entries. Does not reset the counters.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DateMathCache[size=" + size() + ", maximumSize=" + maximumSize + ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + "]";
+    }
+
+    private final class Segment extends LinkedHashMap<String, CompiledDateMath> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledDateMath> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
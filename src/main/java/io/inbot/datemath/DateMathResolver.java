@@ -0,0 +1,199 @@
+package io.inbot.datemath;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe cache of resolved expressions. Unlike DateMathCache, this caches the resulting Instant for each expression
+ * and zone together with the window of time in which it stays the same. Expressions like "beginning month",
+ * "yesterday" or "now-1d/d" only change when now crosses into the next month or day, so until then resolving them is a
+ * couple of hash lookups and comparisons.
+ *
+ * Fixed timestamps like "2015-01-01" never change and are resolved once. Expressions that change all the time, like
+ * "now-1d", are evaluated every time but still only compiled once.
+ *
+ * Like ZoneIds, the cache stops adding expressions once it is full; invalid expressions are never cached.
+ */
+public final class DateMathResolver {
+    private final int maximumSize;
+    private final ConcurrentHashMap<ZoneId, ConcurrentHashMap<String, Resolved>> roundedDown = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ZoneId, ConcurrentHashMap<String, Resolved>> roundedUp = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maximumSize
+     *            maximum number of expression and zone combinations to keep
+     */
+    public DateMathResolver(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize should be at least 1");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @param expression
+     *            any expression supported by DateMath.parse
+     * @return the Instant for the expression relative to DateMath.now() in UTC
+     * @throws IllegalArgumentException
+     *             if the expression is not valid
+     */
+    public Instant resolve(String expression) {
+        return resolve(expression, DateMath.now(), ZoneOffset.UTC, false);
+    }
+
+    /**
+     * @param expression
+     *            any expression supported by DateMath.parse
+     * @param zone
+     *            zone used to interpret dates, times and relative expressions
+     * @return the Instant for the expression relative to DateMath.now()
+     * @throws IllegalArgumentException
+     *             if the expression is not valid
+     */
+    public Instant resolve(String expression, ZoneId zone) {
+        return resolve(expression, DateMath.now(), zone, false);
+    }
+
+    /**
+     * @param expression
+     *            any expression supported by DateMath.parse
+     * @param now
+     *            the instant that relative expressions are resolved against
+     * @param zone
+     *            zone used to interpret dates, times and relative expressions
+     * @param roundUp
+     *            round to the end of the unit instead of the start; see CompiledDateMath.evaluate
+     * @return the Instant for the expression
+     * @throws IllegalArgumentException
+     *             if the expression is not valid
+     */
+    public Instant resolve(String expression, Instant now, ZoneId zone, boolean roundUp) {
+        if (expression == null) {
+            return DateMath.parse(expression, now, zone, roundUp);
+        }
+        if (zone == null) {
+            zone = ZoneOffset.UTC;
+        }
+        ConcurrentHashMap<ZoneId, ConcurrentHashMap<String, Resolved>> zones = roundUp ? roundedUp : roundedDown;
+        ConcurrentHashMap<String, Resolved> expressions = zones.get(zone);
+        Resolved resolved = expressions != null ? expressions.get(expression) : null;
+        if (resolved != null && resolved.from == null) {
+            // changes with every now; only the compiled expression is worth keeping
+            misses.increment();
+            return resolved.compiled.evaluate(now, zone, roundUp);
+        }
+        if (resolved != null && resolved.contains(now)) {
+            hits.increment();
+            return resolved.value;
+        }
+        misses.increment();
+        CompiledDateMath compiled = resolved != null ? resolved.compiled : DateMath.compile(expression);
+        Resolved updated = resolve(compiled, now, zone, roundUp);
+        if (resolved != null) {
+            expressions.put(expression, updated);
+        } else if (size.get() < maximumSize) {
+            if (expressions == null) {
+                expressions = zones.computeIfAbsent(zone, z -> new ConcurrentHashMap<>());
+            }
+            if (expressions.put(expression, updated) == null) {
+                size.incrementAndGet();
+            }
+        }
+        return updated.value;
+    }
+
+    private static Resolved resolve(CompiledDateMath compiled, Instant now, ZoneId zone, boolean roundUp) {
+        Instant value = compiled.evaluate(now, zone, roundUp);
+        if (!compiled.dependsOnNow()) {
+            return new Resolved(compiled, value, Instant.MIN, Instant.MAX);
+        }
+        DateUnit granularity = compiled.granularity();
+        if (granularity == null) {
+            // don't bother caching the value; it is out of date by the next call
+            return new Resolved(compiled, value, null, null);
+        }
+        try {
+            // the boundaries of the unit that now falls in, in local time; "now-1h/d" changes an hour after midnight
+            long shift = compiled.shiftMillis();
+            long epochSecond = now.plusMillis(shift).getEpochSecond();
+            int offset = CompiledDateMath.offset(zone, epochSecond);
+            long start = EpochMath.truncate(epochSecond + offset, granularity);
+            long end = EpochMath.plus(start, granularity, 1);
+            long fromSecond = start - offset;
+            long untilSecond = end - offset;
+            if (!(zone instanceof ZoneOffset)) {
+                // only use the offset of now up to the transitions around it; in an overlap the same local unit
+                // happens twice and rounds to a different instant each time
+                ZoneTable table = ZoneTable.of(zone);
+                fromSecond = Math.max(fromSecond, table.transitionAtOrBefore(epochSecond));
+                untilSecond = Math.min(untilSecond, table.transitionAfter(epochSecond));
+            }
+            Instant from = Instant.ofEpochSecond(fromSecond).minusMillis(shift);
+            Instant until = Instant.ofEpochSecond(untilSecond).minusMillis(shift);
+            return new Resolved(compiled, value, from, until);
+        } catch (DateTimeException | ArithmeticException e) {
+            // at the end of time
+            return new Resolved(compiled, value, null, null);
+        }
+    }
+
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the number of cached expression and zone combinations
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Removes all entries. Does not reset the counters.
+     */
+    public void clear() {
+        roundedDown.clear();
+        roundedUp.clear();
+        size.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "DateMathResolver[size=" + size() + ", maximumSize=" + maximumSize + ", hits=" + hits() + ", misses=" + misses() + "]";
+    }
+
+    private static final class Resolved {
+        private final CompiledDateMath compiled;
+        private final Instant value;
+        // the value is the same for any now in [from, until); null if it depends on the exact now
+        private final Instant from;
+        private final Instant until;
+
+        Resolved(CompiledDateMath compiled, Instant value, Instant from, Instant until) {
+            this.compiled = compiled;
+            this.value = value;
+            this.from = from;
+            this.until = until;
+        }
+
+        boolean contains(Instant now) {
+            return from.compareTo(now) <= 0 && now.compareTo(until) < 0;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.inbot.datemath;
+
+/**
+ * The units that may be used in duration expressions like "now - 1d" and for rounding like "now/d". Both "m" and "M"
+ * are months; there is no unit for minutes.
+ */
+enum DateUnit {
+    MILLIS("ms"),
+    SECONDS("s"),
+    HOURS("h"),
+    DAYS("d"),
+    WEEKS("w"),
+    MONTHS("m"),
+    YEARS("y");
+
+    private final String symbol;
+
+    private DateUnit(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String symbol() {
+        return symbol;
+    }
+
+    static DateUnit of(String unit) {
+        DateUnit dateUnit = forSymbol(unit);
+        if (dateUnit == null) {
+            throw new IllegalArgumentException("illegal time unit. Should be [ms|s|h|d|w|m|M|y]: " + unit);
+        }
+        return dateUnit;
+    }
+
+    /**
+     * @return the unit or null if there is no unit with that symbol
+     */
+    static DateUnit forSymbol(String unit) {
+        switch (unit) {
+        case "ms":
+            return MILLIS;
+        case "s":
+            return SECONDS;
+        case "h":
+            return HOURS;
+        case "d":
+            return DAYS;
+        case "w":
+            return WEEKS;
+        case "m":
+        case "M":
+            return MONTHS;
+        case "y":
+            return YEARS;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * @return the unit with a single character symbol or null if there is none
+     */
+    static DateUnit forSymbol(char unit) {
+        switch (unit) {
+        case 's':
+            return SECONDS;
+        case 'h':
+            return HOURS;
+        case 'd':
+            return DAYS;
+        case 'w':
+            return WEEKS;
+        case 'm':
+        case 'M':
+            return MONTHS;
+        case 'y':
+            return YEARS;
+        default:
+            return null;
+        }
+    }
+}
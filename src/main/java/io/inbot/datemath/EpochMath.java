@@ -0,0 +1,180 @@
+package io.inbot.datemath;
+
+import java.time.DateTimeException;
+
+/**
+ * Integer calendar arithmetic on the proleptic gregorian calendar that java.time also uses. Lets us go from year, month,
+ * day to epoch days and back without creating LocalDate objects.
+ */
+final class EpochMath {
+    static final int SECONDS_PER_DAY = 86_400;
+    static final int NANOS_PER_SECOND = 1_000_000_000;
+
+    // same range as LocalDateTime
+    static final long MIN_SECONDS = epochDay(-999_999_999, 1, 1) * SECONDS_PER_DAY;
+    static final long MAX_SECONDS = epochDay(999_999_999, 12, 31) * SECONDS_PER_DAY + SECONDS_PER_DAY - 1;
+
+    private EpochMath() {
+    }
+
+    static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    static int lengthOfMonth(long year, int month) {
+        switch (month) {
+        case 2:
+            return isLeapYear(year) ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    /**
+     * @param year
+     *            year
+     * @param month
+     *            month 1-12
+     * @param day
+     *            day of month; not validated
+     * @return days since 1970-01-01
+     */
+    static long epochDay(long year, int month, int day) {
+        // shift the year so that it starts in march; that puts the leap day at the end
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        int shiftedMonth = month > 2 ? month - 3 : month + 9;
+        long dayOfYear = (153 * shiftedMonth + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    /**
+     * @param epochDay
+     *            days since 1970-01-01
+     * @return year, month and day packed in a long; use year(), month() and day() to unpack
+     */
+    static long civil(long epochDay) {
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year << 9 | month << 5 | day;
+    }
+
+    static long year(long civil) {
+        return civil >> 9;
+    }
+
+    static int month(long civil) {
+        return (int) (civil >> 5 & 15);
+    }
+
+    static int day(long civil) {
+        return (int) (civil & 31);
+    }
+
+    /**
+     * @return iso day of week, 1 is monday, 7 is sunday
+     */
+    static int dayOfWeek(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7) + 1;
+    }
+
+    static long startOfDay(long seconds) {
+        return Math.floorDiv(seconds, SECONDS_PER_DAY) * SECONDS_PER_DAY;
+    }
+
+    /**
+     * @return the start of the second, hour, day, iso week (starting on monday), month or year that seconds falls in
+     */
+    static long truncate(long seconds, DateUnit unit) {
+        long epochDay = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        long civil;
+        switch (unit) {
+        case SECONDS:
+            return seconds;
+        case HOURS:
+            return Math.floorDiv(seconds, 3600) * 3600;
+        case DAYS:
+            return epochDay * SECONDS_PER_DAY;
+        case WEEKS:
+            return (epochDay - dayOfWeek(epochDay) + 1) * SECONDS_PER_DAY;
+        case MONTHS:
+            civil = civil(epochDay);
+            return epochDay(year(civil), month(civil), 1) * SECONDS_PER_DAY;
+        case YEARS:
+            civil = civil(epochDay);
+            return epochDay(year(civil), 1, 1) * SECONDS_PER_DAY;
+        default:
+            throw new IllegalArgumentException("unsupported unit " + unit);
+        }
+    }
+
+    /**
+     * Same as LocalDateTime.plusMonths: the day of month is clamped to the length of the resulting month.
+     */
+    static long plusMonths(long seconds, long months) {
+        if (months == 0) {
+            return seconds;
+        }
+        long epochDay = Math.floorDiv(seconds, SECONDS_PER_DAY);
+        long secondOfDay = seconds - epochDay * SECONDS_PER_DAY;
+        long civil = civil(epochDay);
+        long totalMonths = Math.addExact(year(civil) * 12 + month(civil) - 1, months);
+        long year = Math.floorDiv(totalMonths, 12);
+        if (year < -999_999_999 || year > 999_999_999) {
+            throw new DateTimeException("Invalid value for Year: " + year);
+        }
+        int month = (int) Math.floorMod(totalMonths, 12) + 1;
+        int day = Math.min(day(civil), lengthOfMonth(year, month));
+        return epochDay(year, month, day) * SECONDS_PER_DAY + secondOfDay;
+    }
+
+    /**
+     * Adds an amount of some unit to seconds that represent a local date time. Milliseconds are not supported here
+     * since they also affect the nano of second.
+     */
+    static long plus(long seconds, DateUnit unit, long amount) {
+        long result;
+        switch (unit) {
+        case SECONDS:
+            result = Math.addExact(seconds, amount);
+            break;
+        case HOURS:
+            result = Math.addExact(seconds, Math.multiplyExact(amount, 3600));
+            break;
+        case DAYS:
+            result = Math.addExact(seconds, Math.multiplyExact(amount, SECONDS_PER_DAY));
+            break;
+        case WEEKS:
+            result = Math.addExact(seconds, Math.multiplyExact(amount, 7 * SECONDS_PER_DAY));
+            break;
+        case MONTHS:
+            return plusMonths(seconds, amount);
+        case YEARS:
+            return plusMonths(seconds, Math.multiplyExact(amount, 12));
+        default:
+            throw new IllegalArgumentException("unsupported unit " + unit);
+        }
+        return checkRange(result);
+    }
+
+    static long checkRange(long seconds) {
+        if (seconds < MIN_SECONDS || seconds > MAX_SECONDS) {
+            throw new DateTimeException("Invalid value for EpochSecond: " + seconds);
+        }
+        return seconds;
+    }
+}
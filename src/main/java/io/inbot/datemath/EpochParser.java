@@ -0,0 +1,214 @@
+package io.inbot.datemath;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+/**
+ * Parses text straight to epoch milliseconds using only primitive arithmetic for the common cases: iso instants, iso
+ * dates and times, year-month, "now" and simple "now - 1d" style expressions. Everything else goes through
+ * CompiledDateMath. Instead of throwing, invalid input results in DateMath.INVALID_EPOCH.
+ */
+final class EpochParser {
+    private static final long NOT_SIMPLE = Long.MAX_VALUE;
+    private static final long MILLIS_PER_DAY = EpochMath.SECONDS_PER_DAY * 1000L;
+
+    // the scanner is mutable; keeping one per thread keeps the fast path allocation free
+    private static final ThreadLocal<IsoScanner> SCANNERS = ThreadLocal.withInitial(IsoScanner::new);
+
+    private static final ThreadLocal<AsciiSequence> SEQUENCES = ThreadLocal.withInitial(AsciiSequence::new);
+
+    private EpochParser() {
+    }
+
+    static long parseEpochMillis(byte[] buf, int off, int len, long nowMillis) {
+        if (buf == null) {
+            return DateMath.INVALID_EPOCH;
+        }
+        checkBounds(buf.length, off, len);
+        AsciiSequence sequence = SEQUENCES.get();
+        try {
+            return parseEpochMillis(sequence.reset(buf, off, len), nowMillis);
+        } finally {
+            sequence.clear();
+        }
+    }
+
+    static long parseEpochMillis(ByteBuffer buf, int off, int len, long nowMillis) {
+        if (buf == null) {
+            return DateMath.INVALID_EPOCH;
+        }
+        checkBounds(buf.limit(), off, len);
+        AsciiSequence sequence = SEQUENCES.get();
+        try {
+            return parseEpochMillis(sequence.reset(buf, off, len), nowMillis);
+        } finally {
+            sequence.clear();
+        }
+    }
+
+    private static void checkBounds(int length, int off, int len) {
+        if (off < 0 || len < 0 || off > length - len) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + length);
+        }
+    }
+
+    /**
+     * @param text
+     *            text to parse
+     * @param nowMillis
+     *            reference time for relative expressions
+     * @return epoch millis in UTC or DateMath.INVALID_EPOCH
+     */
+    static long parseEpochMillis(CharSequence text, long nowMillis) {
+        return parseEpochMillis(text, nowMillis, SCANNERS.get());
+    }
+
+    /**
+     * Same as parseEpochMillis(text, nowMillis) but with a scanner owned by the caller, which saves the thread local
+     * lookup in loops.
+     */
+    static long parseEpochMillis(CharSequence text, long nowMillis, IsoScanner scanner) {
+        if (text == null) {
+            return DateMath.INVALID_EPOCH;
+        }
+        int start = 0;
+        int end = text.length();
+        // same as String.trim()
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return DateMath.INVALID_EPOCH;
+        }
+        switch (scanner.scan(text, start, end)) {
+        case IsoScanner.INSTANT:
+            return scanner.epochSecond * 1000 + scanner.nano / 1_000_000;
+        case IsoScanner.DATE:
+        case IsoScanner.YEAR_MONTH:
+            return scanner.epochDay * MILLIS_PER_DAY;
+        case IsoScanner.TIME:
+            return Math.floorDiv(nowMillis, MILLIS_PER_DAY) * MILLIS_PER_DAY + scanner.secondOfDay * 1000L + scanner.nano / 1_000_000;
+        case IsoScanner.EXPRESSION:
+            long millis = relativeMillis(text, start, end, nowMillis);
+            if (millis != NOT_SIMPLE) {
+                return millis;
+            }
+            return slowPath(text, nowMillis);
+        default:
+            return slowPath(text, nowMillis);
+        }
+    }
+
+    static long parseEpochSecond(CharSequence text, long nowMillis) {
+        long millis = parseEpochMillis(text, nowMillis);
+        return millis == DateMath.INVALID_EPOCH ? millis : Math.floorDiv(millis, 1000);
+    }
+
+    private static long slowPath(CharSequence text, long nowMillis) {
+        String expression = text.toString();
+        ParseError error = new ParseError();
+        DateMathCache cache = DateMath.getCache();
+        CompiledDateMath compiled = cache != null ? cache.get(expression, error) : DateMath.compile(expression, 0, error);
+        if (compiled == null) {
+            return DateMath.INVALID_EPOCH;
+        }
+        try {
+            return compiled.evaluate(Instant.ofEpochMilli(nowMillis), ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeException | ArithmeticException e) {
+            // out of range
+            return DateMath.INVALID_EPOCH;
+        }
+    }
+
+    /**
+     * Handles "now", "now + 1d" and "-1d" style expressions.
+     *
+     * @return the epoch millis or NOT_SIMPLE if the text is anything else
+     */
+    private static long relativeMillis(CharSequence text, int start, int end, long nowMillis) {
+        int pos = start;
+        boolean minus;
+        if (end - pos >= 3 && (text.charAt(pos) | 0x20) == 'n' && (text.charAt(pos + 1) | 0x20) == 'o' && (text.charAt(pos + 2) | 0x20) == 'w') {
+            pos = skipWhitespace(text, pos + 3, end);
+            if (pos == end) {
+                return nowMillis;
+            }
+            char operator = text.charAt(pos);
+            if (operator != '+' && operator != '-') {
+                return NOT_SIMPLE;
+            }
+            minus = operator == '-';
+            pos = skipWhitespace(text, pos + 1, end);
+        } else {
+            minus = text.charAt(pos) == '-';
+            if (minus) {
+                pos = skipWhitespace(text, pos + 1, end);
+            }
+        }
+        int digitsStart = pos;
+        long amount = 0;
+        while (pos < end) {
+            char c = text.charAt(pos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            amount = amount * 10 + c - '0';
+            if (amount > Integer.MAX_VALUE) {
+                return NOT_SIMPLE;
+            }
+            pos++;
+        }
+        if (pos == digitsStart) {
+            return NOT_SIMPLE;
+        }
+        pos = skipWhitespace(text, pos, end);
+        if (pos != end - 1) {
+            return NOT_SIMPLE;
+        }
+        if (minus) {
+            amount = -amount;
+        }
+        switch (text.charAt(pos)) {
+        case 's':
+            return nowMillis + amount * 1000;
+        case 'h':
+            return nowMillis + amount * 3_600_000;
+        case 'd':
+            return nowMillis + amount * MILLIS_PER_DAY;
+        case 'w':
+            return nowMillis + amount * 7 * MILLIS_PER_DAY;
+        case 'm':
+            return plusMonths(nowMillis, amount);
+        case 'y':
+            return plusMonths(nowMillis, amount * 12);
+        default:
+            return NOT_SIMPLE;
+        }
+    }
+
+    private static long plusMonths(long millis, long months) {
+        long seconds = Math.floorDiv(millis, 1000);
+        try {
+            return EpochMath.plusMonths(seconds, months) * 1000 + (millis - seconds * 1000);
+        } catch (DateTimeException | ArithmeticException e) {
+            return DateMath.INVALID_EPOCH;
+        }
+    }
+
+    private static int skipWhitespace(CharSequence text, int pos, int end) {
+        while (pos < end) {
+            char c = text.charAt(pos);
+            // same as \s in regular expressions
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\u000B' && c != '\f' && c != '\r') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,258 @@
+package io.inbot.datemath;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Compiles expressions of the form anchor (op amount unit | /unit)*, e.g. "2015-01-01T00:00:00Z+1d-2h+30s", "now - 1d"
+ * or "now-1d/d".
+ *
+ * The anchor is an iso timestamp, date, time, year-month or keyword and may be left out, in which case it is now. Since
+ * none of the anchors end with a digit or '/' followed by a unit, the adjustments can be split off from the end one at a time
+ * without having to figure out where the anchor ends first. Each character is looked at a constant number of times, so
+ * this is linear in the length of the expression no matter how many adjustments there are.
+ */
+final class ExpressionParser {
+    private static final String UNITS = "[ms|s|h|d|w|m|M|y]";
+
+    private ExpressionParser() {
+    }
+
+    /**
+     * @param text
+     *            the expression
+     * @param base
+     *            offset of text in the original expression; used for error offsets
+     * @param error
+     *            receives the problem if the text cannot be compiled
+     * @return the compiled expression or null if it is invalid
+     */
+    static CompiledDateMath compile(String text, int base, ParseError error) {
+        int start = 0;
+        int end = text.length();
+        // same as String.trim()
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return error.set(ValidationResult.Error.EMPTY, base + start, "cannot parse empty string");
+        }
+        String expression = start == 0 && end == text.length() ? text : text.substring(start, end);
+        base += start;
+        int length = expression.length();
+
+        IsoScanner scanner = new IsoScanner();
+        CompiledDateMath anchor = anchor(expression, length, scanner);
+        if (anchor != null) {
+            return anchor;
+        }
+        int invalidField = scanner.invalidField;
+
+        // adjustments in reverse order
+        DateUnit[] units = new DateUnit[4];
+        long[] amounts = new long[4];
+        int count = 0;
+        end = length;
+        while (end > 0) {
+            char last = expression.charAt(end - 1);
+            int unitStart;
+            DateUnit unit;
+            if (last == 's' && end >= 2 && expression.charAt(end - 2) == 'm') {
+                unit = DateUnit.MILLIS;
+                unitStart = end - 2;
+            } else {
+                unit = DateUnit.forSymbol(last);
+                unitStart = end - 1;
+            }
+            if (unit == null) {
+                break;
+            }
+            int digitsEnd = skipWhitespaceBackwards(expression, unitStart);
+            long amount;
+            int nextEnd;
+            if (digitsEnd > 0 && expression.charAt(digitsEnd - 1) == '/') {
+                nextEnd = trimBackwards(expression, digitsEnd - 1);
+                if (nextEnd == 0) {
+                    // there is nothing to round
+                    break;
+                }
+                amount = CompiledDateMath.ROUND;
+            } else {
+                int digitsStart = digitsEnd;
+                while (digitsStart > 0 && isDigit(expression.charAt(digitsStart - 1))) {
+                    digitsStart--;
+                }
+                if (digitsStart == digitsEnd) {
+                    break;
+                }
+                amount = 0;
+                for (int i = digitsStart; i < digitsEnd && amount <= Integer.MAX_VALUE; i++) {
+                    amount = amount * 10 + expression.charAt(i) - '0';
+                }
+                if (amount > Integer.MAX_VALUE) {
+                    return error.set(ValidationResult.Error.BAD_AMOUNT, base + digitsStart,
+                            "illegal amount. Should be at most " + Integer.MAX_VALUE + ": " + expression.substring(digitsStart, digitsEnd));
+                }
+                int operatorEnd = skipWhitespaceBackwards(expression, digitsStart);
+                if (operatorEnd == 0) {
+                    // a duration without an operator at the start is relative to now
+                    nextEnd = 0;
+                } else {
+                    char operator = expression.charAt(operatorEnd - 1);
+                    if (operator != '+' && operator != '-') {
+                        break;
+                    }
+                    nextEnd = trimBackwards(expression, operatorEnd - 1);
+                    if (nextEnd == 0 && operator == '+') {
+                        // "-1d" is fine but "+1d" has never been
+                        break;
+                    }
+                    if (operator == '-') {
+                        amount = -amount;
+                    }
+                }
+            }
+            if (count == units.length) {
+                units = Arrays.copyOf(units, count * 2);
+                amounts = Arrays.copyOf(amounts, count * 2);
+            }
+            units[count] = unit;
+            amounts[count] = amount;
+            count++;
+            end = nextEnd;
+        }
+
+        if (count > 0 && end > 0) {
+            anchor = anchor(expression, end, scanner);
+            invalidField = scanner.invalidField;
+        } else if (count > 0) {
+            anchor = new CompiledDateMath(expression, CompiledDateMath.NOW, 0, 0);
+        }
+        if (anchor == null) {
+            return fail(expression, end == 0 ? length : end, base, invalidField, error);
+        }
+        DateUnit[] orderedUnits = new DateUnit[count];
+        long[] orderedAmounts = new long[count];
+        for (int i = 0; i < count; i++) {
+            orderedUnits[i] = units[count - 1 - i];
+            orderedAmounts[i] = amounts[count - 1 - i];
+        }
+        return anchor.plus(expression, orderedUnits, orderedAmounts);
+    }
+
+    /**
+     * @return the compiled anchor for the first end characters of the expression or null if they are not an anchor
+     */
+    private static CompiledDateMath anchor(String expression, int end, IsoScanner scanner) {
+        String text = end == expression.length() ? expression : expression.substring(0, end);
+        switch (scanner.scan(expression, 0, end)) {
+        case IsoScanner.INSTANT:
+            return new CompiledDateMath(text, CompiledDateMath.ABSOLUTE, scanner.epochSecond, scanner.nano);
+        case IsoScanner.DATE:
+        case IsoScanner.YEAR_MONTH:
+            return new CompiledDateMath(text, CompiledDateMath.DATE, scanner.epochDay, 0);
+        case IsoScanner.TIME:
+            return new CompiledDateMath(text, CompiledDateMath.TIME, scanner.secondOfDay, scanner.nano);
+        case IsoScanner.EXPRESSION:
+            Keyword keyword = Keyword.match(expression, 0, end);
+            return keyword != null ? keyword.compile(text) : null;
+        default:
+            // something exotic that the scanner does not handle; let java.time sort it out
+            try {
+                return flexibleInstantCompile(text);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+
+    private static CompiledDateMath flexibleInstantCompile(String text) throws DateTimeParseException {
+        try {
+            Instant instant = Instant.parse(text);
+            return new CompiledDateMath(text, CompiledDateMath.ABSOLUTE, instant.getEpochSecond(), instant.getNano());
+        } catch (DateTimeParseException e) {
+            try {
+                // try LocalDate
+                LocalDate localDate = LocalDate.parse(text);
+                return new CompiledDateMath(text, CompiledDateMath.DATE, localDate.toEpochDay(), 0);
+            } catch (DateTimeParseException e1) {
+                // try LocalTime
+                LocalTime localTime = LocalTime.parse(text);
+                return new CompiledDateMath(text, CompiledDateMath.TIME, localTime.toSecondOfDay(), localTime.getNano());
+            }
+        }
+    }
+
+    /**
+     * Reports what is wrong with the first end characters of the expression, which are neither an anchor nor end with
+     * an adjustment.
+     */
+    private static CompiledDateMath fail(String expression, int end, int base, int invalidField, ParseError error) {
+        if (invalidField >= 0) {
+            // it looked like an iso timestamp, so that is the most useful thing to complain about
+            return error.set(ValidationResult.Error.BAD_ISO_FIELD, base + invalidField, "invalid value in iso timestamp: " + expression);
+        }
+        int operator = end - 1;
+        while (operator > 0 && "+-/".indexOf(expression.charAt(operator)) < 0) {
+            operator--;
+        }
+        if (operator <= 0) {
+            return error.set(ValidationResult.Error.UNKNOWN_EXPRESSION, base, "illegal time expression " + expression);
+        }
+        int right = skipWhitespace(expression, operator + 1, end);
+        if (expression.charAt(operator) == '/') {
+            return error.set(ValidationResult.Error.BAD_UNIT, base + right,
+                    "illegal time unit. Should be " + UNITS + ": " + expression.substring(right, end));
+        }
+        int digitsEnd = right;
+        while (digitsEnd < end && isDigit(expression.charAt(digitsEnd))) {
+            digitsEnd++;
+        }
+        if (digitsEnd > right && digitsEnd < end) {
+            int unitStart = skipWhitespace(expression, digitsEnd, end);
+            if (unitStart < end) {
+                return error.set(ValidationResult.Error.BAD_UNIT, base + unitStart,
+                        "illegal time unit. Should be " + UNITS + ": " + expression.substring(unitStart, end));
+            }
+        }
+        return error.set(ValidationResult.Error.BAD_DURATION, base + right,
+                "illegal duration. Should match ([0-9]+)(" + UNITS + "): " + expression.substring(right, end));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // same as \s in regular expressions
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int skipWhitespace(String text, int pos, int end) {
+        while (pos < end && isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // same as String.trim()
+    private static int trimBackwards(String text, int end) {
+        while (end > 0 && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int skipWhitespaceBackwards(String text, int end) {
+        while (end > 0 && isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+}
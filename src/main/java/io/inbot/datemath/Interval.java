@@ -0,0 +1,133 @@
+package io.inbot.datemath;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Immutable time window from start (inclusive) to end (exclusive) in epoch millis. Use DateMath.parseRange to create one
+ * from expressions like "now-7d..now".
+ *
+ * Everything is kept as primitives, so contains is two comparisons and can be used to filter large numbers of events.
+ */
+public final class Interval {
+    private final long startMillis;
+    private final long endMillis;
+
+    private Interval(long startMillis, long endMillis) {
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+    }
+
+    /**
+     * @param startMillis
+     *            start in epoch millis (inclusive)
+     * @param endMillis
+     *            end in epoch millis (exclusive)
+     * @return the interval
+     * @throws IllegalArgumentException
+     *             if start is after end
+     */
+    public static Interval of(long startMillis, long endMillis) {
+        if (startMillis > endMillis) {
+            throw new IllegalArgumentException("start should not be after end: " + DateMath.formatIsoDate(startMillis) + " > " + DateMath.formatIsoDate(endMillis));
+        }
+        return new Interval(startMillis, endMillis);
+    }
+
+    /**
+     * @see DateMath#parseRange(String, Instant, ZoneId)
+     */
+    static Interval parse(String text, Instant now, ZoneId zone) {
+        if (text == null) {
+            throw new IllegalArgumentException("cannot parse empty string");
+        }
+        int separator = text.indexOf(" to ");
+        if (separator >= 0) {
+            return between(text.substring(0, separator), text.substring(separator + 4), now, zone);
+        }
+        separator = text.indexOf("..");
+        if (separator >= 0) {
+            return between(text.substring(0, separator), text.substring(separator + 2), now, zone);
+        }
+        // '/' is also used for rounding and in dates like "2015/01", so split where both sides make sense
+        ParseError error = new ParseError();
+        for (separator = text.indexOf('/'); separator >= 0; separator = text.indexOf('/', separator + 1)) {
+            CompiledDateMath start = DateMath.compile(text.substring(0, separator), 0, error);
+            CompiledDateMath end = start != null ? DateMath.compile(text.substring(separator + 1), 0, error) : null;
+            if (end != null) {
+                return of(start.evaluate(now, zone).toEpochMilli(), end.evaluate(now, zone).toEpochMilli());
+            }
+        }
+        throw new IllegalArgumentException("illegal range. Should be from..to, from/to or from to to: " + text);
+    }
+
+    private static Interval between(String start, String end, Instant now, ZoneId zone) {
+        return of(DateMath.parse(start, now, zone).toEpochMilli(), DateMath.parse(end, now, zone).toEpochMilli());
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    public Instant getStart() {
+        return Instant.ofEpochMilli(startMillis);
+    }
+
+    public Instant getEnd() {
+        return Instant.ofEpochMilli(endMillis);
+    }
+
+    /**
+     * @return end - start in milliseconds
+     */
+    public long durationMillis() {
+        return endMillis - startMillis;
+    }
+
+    /**
+     * @param epochMillis
+     *            timestamp in epoch millis
+     * @return true if start &lt;= epochMillis &lt; end
+     */
+    public boolean contains(long epochMillis) {
+        return startMillis <= epochMillis && epochMillis < endMillis;
+    }
+
+    /**
+     * @param other
+     *            another interval
+     * @return true if there is at least one millisecond that is in both intervals
+     */
+    public boolean overlaps(Interval other) {
+        return startMillis < other.endMillis && other.startMillis < endMillis;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Interval)) {
+            return false;
+        }
+        Interval other = (Interval) obj;
+        return startMillis == other.startMillis && endMillis == other.endMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(startMillis) + Long.hashCode(endMillis);
+    }
+
+    /**
+     * @return the interval in iso 8601 notation, e.g. "2015-01-01T00:00:00.000Z/2015-01-02T00:00:00.000Z"
+     */
+    @Override
+    public String toString() {
+        return DateMath.formatIsoDate(startMillis) + "/" + DateMath.formatIsoDate(endMillis);
+    }
+}
@@ -0,0 +1,232 @@
+package io.inbot.datemath;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+
+/**
+ * Writes iso instants like "1974-10-20T00:00:00.000Z" using integer arithmetic only. The output is identical to
+ * DateTimeFormatterBuilder.appendInstant(3) (or appendInstant(0) without milliseconds). Years outside -9999 to 9999 are
+ * rare enough that we simply use those formatters for them.
+ *
+ * Also writes and reads the "yyyyMMddHHmmss" simple timestamps used for file names and object keys.
+ */
+final class IsoFormat {
+    static final int LENGTH = 24;
+    static final int LENGTH_NO_MS = 20;
+    static final int SIMPLE_LENGTH = 14;
+    // "+999999999-12-31T23:59:59.999Z", the longest instant the formatters can write
+    static final int MAX_LENGTH = 30;
+
+    private static final long MIN_SECONDS = EpochMath.epochDay(-9999, 1, 1) * EpochMath.SECONDS_PER_DAY;
+    private static final long MAX_SECONDS = EpochMath.epochDay(10000, 1, 1) * EpochMath.SECONDS_PER_DAY - 1;
+    // simple timestamps have exactly 4 digits for the year and no sign
+    private static final long MIN_SIMPLE_SECONDS = EpochMath.epochDay(0, 1, 1) * EpochMath.SECONDS_PER_DAY;
+
+    private IsoFormat() {
+    }
+
+    /**
+     * The formatters for years outside -9999 to 9999; only built when such a year is formatted.
+     */
+    private static final class Formatters {
+        /**
+         * Variant of DateTimeFormatter.ISO_INSTANT that always adds 3 fractionals for the milliseconds instead of 0, 3, 6, or 9.
+         */
+        static final DateTimeFormatter CONSISTENT_ISO_INSTANT=new DateTimeFormatterBuilder()
+                .parseCaseInsensitive()
+                .appendInstant(3)
+                .toFormatter();
+
+        static final DateTimeFormatter CONSISTENT_ISO_INSTANT_NOMS=new DateTimeFormatterBuilder()
+                .parseCaseInsensitive()
+                .appendInstant(0)
+                .toFormatter();
+
+        private Formatters() {
+        }
+    }
+
+    static String format(long epochSecond, int millis, boolean withMillis) {
+        byte[] buf = new byte[MAX_LENGTH];
+        int end = format(epochSecond, millis, withMillis, buf, 0);
+        return new String(buf, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Same as the byte[] variant but writes chars.
+     *
+     * @return the offset after the last written char
+     */
+    static int format(long epochSecond, int millis, boolean withMillis, char[] buf, int off) {
+        byte[] ascii = new byte[MAX_LENGTH];
+        int end = format(epochSecond, millis, withMillis, ascii, 0);
+        for (int i = 0; i < end; i++) {
+            buf[off++] = (char) ascii[i];
+        }
+        return off;
+    }
+
+    /**
+     * Writes ascii bytes; the other variants copy what this one writes.
+     *
+     * @return the offset after the last written byte
+     */
+    static int format(long epochSecond, int millis, boolean withMillis, byte[] buf, int off) {
+        if (epochSecond < MIN_SECONDS || epochSecond > MAX_SECONDS) {
+            String formatted = formatWithFormatter(epochSecond, millis, withMillis);
+            for (int i = 0; i < formatted.length(); i++) {
+                buf[off++] = (byte) formatted.charAt(i);
+            }
+            return off;
+        }
+        long epochDay = Math.floorDiv(epochSecond, EpochMath.SECONDS_PER_DAY);
+        int secondOfDay = (int) (epochSecond - epochDay * EpochMath.SECONDS_PER_DAY);
+        long civil = EpochMath.civil(epochDay);
+        int year = (int) EpochMath.year(civil);
+        if (year < 0) {
+            buf[off++] = '-';
+            year = -year;
+        }
+        off = digits(year, 4, buf, off);
+        buf[off++] = '-';
+        off = digits(EpochMath.month(civil), 2, buf, off);
+        buf[off++] = '-';
+        off = digits(EpochMath.day(civil), 2, buf, off);
+        buf[off++] = 'T';
+        off = digits(secondOfDay / 3600, 2, buf, off);
+        buf[off++] = ':';
+        off = digits(secondOfDay / 60 % 60, 2, buf, off);
+        buf[off++] = ':';
+        off = digits(secondOfDay % 60, 2, buf, off);
+        if (withMillis) {
+            buf[off++] = '.';
+            off = digits(millis, 3, buf, off);
+        }
+        buf[off++] = 'Z';
+        return off;
+    }
+
+    static void format(long epochSecond, int millis, boolean withMillis, StringBuilder out) {
+        byte[] ascii = new byte[MAX_LENGTH];
+        append(ascii, format(epochSecond, millis, withMillis, ascii, 0), out);
+    }
+
+    private static String formatWithFormatter(long epochSecond, int millis, boolean withMillis) {
+        Instant instant = Instant.ofEpochSecond(epochSecond, millis * 1_000_000L);
+        if (withMillis) {
+            return Formatters.CONSISTENT_ISO_INSTANT.format(instant.atZone(ZoneOffset.UTC));
+        } else {
+            return Formatters.CONSISTENT_ISO_INSTANT_NOMS.format(instant.atZone(ZoneOffset.UTC));
+        }
+    }
+
+    static String formatSimple(long epochSecond) {
+        byte[] buf = new byte[SIMPLE_LENGTH];
+        formatSimple(epochSecond, buf, 0);
+        return new String(buf, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return the offset after the last written byte
+     * @throws DateTimeException
+     *             if the year does not fit in 4 digits
+     */
+    static int formatSimple(long epochSecond, byte[] buf, int off) {
+        checkSimpleRange(epochSecond);
+        long epochDay = Math.floorDiv(epochSecond, EpochMath.SECONDS_PER_DAY);
+        int secondOfDay = (int) (epochSecond - epochDay * EpochMath.SECONDS_PER_DAY);
+        long civil = EpochMath.civil(epochDay);
+        off = digits((int) EpochMath.year(civil), 4, buf, off);
+        off = digits(EpochMath.month(civil), 2, buf, off);
+        off = digits(EpochMath.day(civil), 2, buf, off);
+        off = digits(secondOfDay / 3600, 2, buf, off);
+        off = digits(secondOfDay / 60 % 60, 2, buf, off);
+        return digits(secondOfDay % 60, 2, buf, off);
+    }
+
+    static void formatSimple(long epochSecond, StringBuilder out) {
+        byte[] ascii = new byte[SIMPLE_LENGTH];
+        append(ascii, formatSimple(epochSecond, ascii, 0), out);
+    }
+
+    private static void append(byte[] ascii, int end, StringBuilder out) {
+        for (int i = 0; i < end; i++) {
+            out.append((char) ascii[i]);
+        }
+    }
+
+    private static void checkSimpleRange(long epochSecond) {
+        if (epochSecond < MIN_SIMPLE_SECONDS || epochSecond > MAX_SECONDS) {
+            throw new DateTimeException("cannot format " + Instant.ofEpochSecond(epochSecond) + " as yyyyMMddHHmmss");
+        }
+    }
+
+    /**
+     * @return epoch second of a "yyyyMMddHHmmss" timestamp in UTC or DateMath.INVALID_EPOCH
+     */
+    static long parseSimple(CharSequence text) {
+        if (text.length() != SIMPLE_LENGTH) {
+            return DateMath.INVALID_EPOCH;
+        }
+        return simpleEpochSecond(number(text, 0, 4), number(text, 4, 2), number(text, 6, 2), number(text, 8, 2), number(text, 10, 2), number(text, 12, 2));
+    }
+
+    /**
+     * @return epoch second of the "yyyyMMddHHmmss" timestamp at off in UTC or DateMath.INVALID_EPOCH
+     */
+    static long parseSimple(byte[] buf, int off) {
+        return simpleEpochSecond(number(buf, off, 4), number(buf, off + 4, 2), number(buf, off + 6, 2), number(buf, off + 8, 2), number(buf, off + 10, 2),
+                number(buf, off + 12, 2));
+    }
+
+    private static long simpleEpochSecond(int year, int month, int day, int hour, int minute, int second) {
+        // number returns -1 for anything that is not a digit
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > EpochMath.lengthOfMonth(year, month) || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59) {
+            return DateMath.INVALID_EPOCH;
+        }
+        return EpochMath.epochDay(year, month, day) * EpochMath.SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * @return the count digits at off as a number or -1 if they are not all digits
+     */
+    private static int number(CharSequence text, int off, int count) {
+        int value = 0;
+        for (int i = off; i < off + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int number(byte[] buf, int off, int count) {
+        int value = 0;
+        for (int i = off; i < off + count; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Writes value as count digits, zero padded.
+     */
+    static int digits(int value, int count, byte[] buf, int off) {
+        for (int i = off + count - 1; i >= off; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return off + count;
+    }
+}
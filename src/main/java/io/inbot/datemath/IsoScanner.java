@@ -0,0 +1,320 @@
+package io.inbot.datemath;
+
+/**
+ * Hand written, single pass scanner that figures out which of the forms supported by DateMath a piece of text is in:
+ * an iso instant, an iso date, an iso time, a year with an optional month, or an expression. This avoids using
+ * exceptions thrown by the java.time parsers for control flow.
+ *
+ * The scanner is strict and only claims the common shapes (e.g. "2015-01-01T10:00:00.000Z", "2015-01-01", "10:00",
+ * "2015-01"). When one of those shapes has an invalid value (e.g. "2015-02-30"), java.time would reject it as well, so
+ * it is reported as EXPRESSION and invalidField points at the offending field. Anything else that could still be
+ * accepted by the java.time parsers (offsets, years with more than four digits, etc.) is reported as UNKNOWN so the
+ * caller can fall back to those. Text that none of them can possibly accept is reported as EXPRESSION.
+ *
+ * Instances are not thread safe; the scanned values are stored in fields so they can be read after calling scan.
+ */
+final class IsoScanner {
+    static final int UNKNOWN = 0;
+    static final int INSTANT = 1;
+    static final int DATE = 2;
+    static final int TIME = 3;
+    static final int YEAR_MONTH = 4;
+    static final int EXPRESSION = 5;
+
+    /**
+     * Set for INSTANT.
+     */
+    long epochSecond;
+    /**
+     * Set for INSTANT and TIME.
+     */
+    int nano;
+    /**
+     * Set for DATE and YEAR_MONTH.
+     */
+    long epochDay;
+    /**
+     * Set for TIME.
+     */
+    int secondOfDay;
+    /**
+     * Offset of a field with an invalid value in text that otherwise looks like an iso timestamp or -1.
+     */
+    int invalidField;
+
+    // raw values set by scanTime
+    private int hour;
+    private int minute;
+    private int second;
+
+    /**
+     * @param text
+     *            text; should already be trimmed
+     * @param start
+     *            start index (inclusive)
+     * @param end
+     *            end index (exclusive)
+     * @return one of the form constants
+     */
+    int scan(CharSequence text, int start, int end) {
+        invalidField = -1;
+        int length = end - start;
+        if (length == 0) {
+            return EXPRESSION;
+        }
+        if ((length == 4 || length == 7) && isYearMonth(text, start, length)) {
+            int year = digits(text, start, 4);
+            int month = length == 7 ? digits(text, start + 5, 2) : 1;
+            if (month < 1 || month > 12) {
+                invalidField = start + 5;
+                return EXPRESSION;
+            }
+            epochDay = EpochMath.epochDay(year, month, 1);
+            return YEAR_MONTH;
+        }
+        if (length >= 5 && text.charAt(start + 2) == ':') {
+            if (scanTime(text, start, end) == end) {
+                if (hour > 23) {
+                    invalidField = start;
+                } else if (minute > 59) {
+                    invalidField = start + 3;
+                } else if (second > 59) {
+                    invalidField = start + 6;
+                } else {
+                    secondOfDay = hour * 3600 + minute * 60 + Math.max(second, 0);
+                    return TIME;
+                }
+                return EXPRESSION;
+            }
+            return fallback(text, start, end);
+        }
+
+        int pos = start;
+        boolean negative = text.charAt(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        if (end - pos >= 10 && text.charAt(pos + 4) == '-' && text.charAt(pos + 7) == '-') {
+            int year = digits(text, pos, 4);
+            int month = digits(text, pos + 5, 2);
+            int day = digits(text, pos + 8, 2);
+            if (year < 0 || month < 0 || day < 0 || negative && year == 0) {
+                // java.time does not allow -0000 but let it decide
+                return fallback(text, start, end);
+            }
+            int dateEnd = pos + 10;
+            boolean dateOnly = dateEnd == end;
+            boolean instant = false;
+            if (!dateOnly) {
+                char t = text.charAt(dateEnd);
+                if (t == 'T' || t == 't') {
+                    int timeEnd = scanTime(text, dateEnd + 1, end);
+                    if (timeEnd == end - 1 && second >= 0) {
+                        char z = text.charAt(timeEnd);
+                        instant = z == 'Z' || z == 'z';
+                    }
+                }
+                if (!instant) {
+                    return fallback(text, start, end);
+                }
+            }
+            if (negative) {
+                year = -year;
+            }
+            if (month < 1 || month > 12) {
+                invalidField = pos + 5;
+                return EXPRESSION;
+            }
+            if (day < 1 || day > EpochMath.lengthOfMonth(year, month)) {
+                invalidField = pos + 8;
+                return EXPRESSION;
+            }
+            long days = EpochMath.epochDay(year, month, day);
+            if (dateOnly) {
+                epochDay = days;
+                return DATE;
+            }
+            // like java.time, allow 24:00:00 for the end of the day and 23:59:60 for leap seconds
+            if (hour == 24 && minute == 0 && second == 0 && nano == 0) {
+                hour = 0;
+                days++;
+            } else if (hour == 23 && minute == 59 && second == 60) {
+                second = 59;
+            }
+            if (hour > 23) {
+                invalidField = dateEnd + 1;
+            } else if (minute > 59) {
+                invalidField = dateEnd + 4;
+            } else if (second > 59) {
+                invalidField = dateEnd + 7;
+            } else {
+                epochSecond = days * EpochMath.SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+                return INSTANT;
+            }
+            return EXPRESSION;
+        }
+        return fallback(text, start, end);
+    }
+
+    /**
+     * Scans the shape HH:mm[:ss[.fffffffff]] and sets hour, minute, second (-1 if missing) and nano without validating
+     * their values.
+     *
+     * @return the position after the time or -1 if there is no time at pos
+     */
+    private int scanTime(CharSequence text, int pos, int end) {
+        if (end - pos < 5 || text.charAt(pos + 2) != ':') {
+            return -1;
+        }
+        hour = digits(text, pos, 2);
+        minute = digits(text, pos + 3, 2);
+        if (hour < 0 || minute < 0) {
+            return -1;
+        }
+        pos += 5;
+        second = -1;
+        int fraction = 0;
+        if (pos < end && text.charAt(pos) == ':') {
+            if (end - pos < 3) {
+                return -1;
+            }
+            second = digits(text, pos + 1, 2);
+            if (second < 0) {
+                return -1;
+            }
+            pos += 3;
+            if (pos < end && text.charAt(pos) == '.') {
+                pos++;
+                int digitCount = 0;
+                while (pos < end && digitCount < 9) {
+                    char c = text.charAt(pos);
+                    if (c < '0' || c > '9') {
+                        break;
+                    }
+                    fraction = fraction * 10 + c - '0';
+                    digitCount++;
+                    pos++;
+                }
+                if (digitCount == 0) {
+                    return -1;
+                }
+                for (int i = digitCount; i < 9; i++) {
+                    fraction *= 10;
+                }
+            }
+        }
+        nano = fraction;
+        return pos;
+    }
+
+    /**
+     * Four digits optionally followed by any non digit and two digits, e.g. "2014" or "2014-05".
+     */
+    private static boolean isYearMonth(CharSequence text, int start, int length) {
+        if (digits(text, start, 4) < 0) {
+            return false;
+        }
+        if (length == 4) {
+            return true;
+        }
+        char separator = text.charAt(start + 4);
+        return (separator < '0' || separator > '9') && digits(text, start + 5, 2) >= 0;
+    }
+
+    /**
+     * Decides between UNKNOWN and EXPRESSION for text that did not match any of the strict shapes. This is a loose
+     * version of what the java.time parsers accept: [+-]yyyyy-MM-dd with up to 10 digits for the year, optionally
+     * followed by THH:mm:ss[.fffffffff] and Z or an offset, or HH:mm[:ss[.fffffffff]].
+     */
+    private static int fallback(CharSequence text, int start, int end) {
+        int pos = start;
+        char first = text.charAt(pos);
+        boolean signed = first == '+' || first == '-';
+        if (signed) {
+            pos++;
+        }
+        int digitsEnd = skipDigits(text, pos, end);
+        int count = digitsEnd - pos;
+        if (!signed && count == 2 && digitsEnd < end && text.charAt(digitsEnd) == ':') {
+            return looseTime(text, start, end, false) == end ? UNKNOWN : EXPRESSION;
+        }
+        if (count >= 4 && count <= 10 && end - digitsEnd >= 6 && text.charAt(digitsEnd) == '-' && digits(text, digitsEnd + 1, 2) >= 0
+                && text.charAt(digitsEnd + 3) == '-' && digits(text, digitsEnd + 4, 2) >= 0) {
+            pos = digitsEnd + 6;
+            if (pos == end) {
+                return UNKNOWN;
+            }
+            char t = text.charAt(pos);
+            if (t != 'T' && t != 't') {
+                return EXPRESSION;
+            }
+            pos = looseTime(text, pos + 1, end, true);
+            if (pos < 0 || pos == end) {
+                return EXPRESSION;
+            }
+            char offset = text.charAt(pos);
+            if ((offset == 'Z' || offset == 'z') && pos == end - 1) {
+                return UNKNOWN;
+            }
+            if ((offset == '+' || offset == '-') && pos < end - 1) {
+                for (int i = pos + 1; i < end; i++) {
+                    char c = text.charAt(i);
+                    if (c != ':' && (c < '0' || c > '9')) {
+                        return EXPRESSION;
+                    }
+                }
+                return UNKNOWN;
+            }
+        }
+        return EXPRESSION;
+    }
+
+    /**
+     * @return position after HH:mm[:ss[.fffffffff]] where the fraction may have no digits, or -1
+     */
+    private static int looseTime(CharSequence text, int pos, int end, boolean requireSeconds) {
+        if (end - pos < 5 || digits(text, pos, 2) < 0 || text.charAt(pos + 2) != ':' || digits(text, pos + 3, 2) < 0) {
+            return -1;
+        }
+        pos += 5;
+        if (end - pos >= 3 && text.charAt(pos) == ':' && digits(text, pos + 1, 2) >= 0) {
+            pos += 3;
+            if (pos < end && text.charAt(pos) == '.') {
+                int fractionEnd = skipDigits(text, pos + 1, end);
+                if (fractionEnd - pos - 1 > 9) {
+                    return -1;
+                }
+                pos = fractionEnd;
+            }
+        } else if (requireSeconds) {
+            return -1;
+        }
+        return pos;
+    }
+
+    private static int skipDigits(CharSequence text, int pos, int end) {
+        while (pos < end) {
+            char c = text.charAt(pos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return the value of count ascii digits at pos or -1 if any of them is not a digit
+     */
+    static int digits(CharSequence text, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,97 @@
+package io.inbot.datemath;
+
+/**
+ * Formats epoch millis to the same iso instants as DateMath.formatIsoDate and DateMath.formatIsoDateNoMs, but remembers
+ * the "yyyy-MM-ddTHH:mm:ss" part for the last second it saw. When timestamps arrive in more or less increasing order,
+ * as they do when logging, most calls only have to write the three millisecond digits.
+ *
+ * Instances are not thread safe. Use one per thread, e.g. with a ThreadLocal.
+ */
+public final class IsoTimestampFormatter {
+    // large enough for any year java.time can format
+    private final char[] chars = new char[40];
+    private final byte[] bytes = new byte[40];
+    private long cachedSecond = Long.MIN_VALUE;
+    // length of the cached "yyyy-MM-ddTHH:mm:ss" part
+    private int prefixLength;
+
+    /**
+     * @param timeInMillisSinceEpoch
+     *            epoch millis
+     * @return same as DateMath.formatIsoDate(long)
+     */
+    public String format(long timeInMillisSinceEpoch) {
+        return new String(chars, 0, render(timeInMillisSinceEpoch, true));
+    }
+
+    /**
+     * @param timeInMillisSinceEpoch
+     *            epoch millis
+     * @return same as DateMath.formatIsoDateNoMs(Instant.ofEpochMilli(timeInMillisSinceEpoch))
+     */
+    public String formatNoMs(long timeInMillisSinceEpoch) {
+        return new String(chars, 0, render(timeInMillisSinceEpoch, false));
+    }
+
+    /**
+     * Appends the same as DateMath.formatIsoDate(long) to out.
+     *
+     * @param timeInMillisSinceEpoch
+     *            epoch millis
+     * @param out
+     *            the iso instant is appended to this
+     */
+    public void format(long timeInMillisSinceEpoch, StringBuilder out) {
+        out.append(chars, 0, render(timeInMillisSinceEpoch, true));
+    }
+
+    /**
+     * Writes the same as DateMath.formatIsoDate(long) as ascii bytes.
+     *
+     * @param timeInMillisSinceEpoch
+     *            epoch millis
+     * @param buf
+     *            buffer; needs room for 24 bytes (more for years before 0 or after 9999)
+     * @param off
+     *            offset in the buffer to start writing
+     * @return the offset after the last written byte
+     */
+    public int format(long timeInMillisSinceEpoch, byte[] buf, int off) {
+        int length = render(timeInMillisSinceEpoch, true);
+        System.arraycopy(bytes, 0, buf, off, length);
+        return off + length;
+    }
+
+    /**
+     * Renders into chars and bytes, only rendering the prefix if the second changed.
+     *
+     * @return length of the rendered timestamp
+     */
+    private int render(long timeInMillisSinceEpoch, boolean withMillis) {
+        long epochSecond = Math.floorDiv(timeInMillisSinceEpoch, 1000);
+        if (epochSecond != cachedSecond) {
+            // everything up to the Z
+            prefixLength = IsoFormat.format(epochSecond, 0, false, chars, 0) - 1;
+            for (int i = 0; i < prefixLength; i++) {
+                bytes[i] = (byte) chars[i];
+            }
+            cachedSecond = epochSecond;
+        }
+        int pos = prefixLength;
+        if (withMillis) {
+            int millis = (int) (timeInMillisSinceEpoch - epochSecond * 1000);
+            chars[pos] = '.';
+            bytes[pos] = '.';
+            chars[pos + 1] = (char) ('0' + millis / 100);
+            bytes[pos + 1] = (byte) ('0' + millis / 100);
+            chars[pos + 2] = (char) ('0' + millis / 10 % 10);
+            bytes[pos + 2] = (byte) ('0' + millis / 10 % 10);
+            chars[pos + 3] = (char) ('0' + millis % 10);
+            bytes[pos + 3] = (byte) ('0' + millis % 10);
+            pos += 4;
+        }
+        chars[pos] = 'Z';
+        bytes[pos] = 'Z';
+        return pos + 1;
+    }
+}
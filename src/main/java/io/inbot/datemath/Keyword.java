@@ -0,0 +1,148 @@
+package io.inbot.datemath;
+
+import java.util.Arrays;
+
+/**
+ * The keywords that may be used instead of an iso timestamp, e.g. "now" or "beginning month". Matching is case
+ * insensitive and treats '_' and ' ' the same, like text.replace('_', ' ').toLowerCase() would, but walks a character
+ * trie instead so that it doesn't allocate anything.
+ */
+enum Keyword {
+    MIN("min", CompiledDateMath.ABSOLUTE, DateMath.AT_0AD.getEpochSecond()),
+    MAX("max", CompiledDateMath.ABSOLUTE, DateMath.AT_Y10K.getEpochSecond()),
+    DISTANT_PAST("distant past", CompiledDateMath.ABSOLUTE, 0),
+    DISTANT_FUTURE("distant future", CompiledDateMath.ABSOLUTE, DateMath.AT_Y10K.getEpochSecond()),
+    MORNING("morning", CompiledDateMath.TIME, 9 * 3600),
+    MIDNIGHT("midnight", CompiledDateMath.TIME, 0),
+    NOON("noon", CompiledDateMath.TIME, 12 * 3600),
+    NOW("now", CompiledDateMath.NOW, 0),
+    BEGINNING_MONTH("beginning month", CompiledDateMath.MONTH, 0),
+    END_MONTH("end month", CompiledDateMath.MONTH, 1),
+    BEGINNING_YEAR("beginning year", CompiledDateMath.YEAR, 0),
+    END_YEAR("end year", CompiledDateMath.YEAR, 1),
+    BEGINNING_WEEK("beginning week", CompiledDateMath.WEEK, 0),
+    END_WEEK("end week", CompiledDateMath.WEEK, 1),
+    TOMORROW("tomorrow", CompiledDateMath.START_OF_DAY, 1),
+    DAY_AFTER_TOMORROW("day after tomorrow", CompiledDateMath.START_OF_DAY, 2),
+    YESTERDAY("yesterday", CompiledDateMath.START_OF_DAY, -1),
+    DAY_BEFORE_YESTERDAY("day before yesterday", CompiledDateMath.START_OF_DAY, -2),
+    NEXT_MONTH("next month", DateUnit.MONTHS, 1),
+    LAST_MONTH("last month", DateUnit.MONTHS, -1),
+    NEXT_YEAR("next year", DateUnit.YEARS, 1),
+    LAST_YEAR("last year", DateUnit.YEARS, -1);
+
+    // a-z and the space
+    private static final int ALPHABET = 27;
+    private static final Keyword[] VALUES = values();
+    // children[node * ALPHABET + letter] is the child node or 0 if there is none; node 0 is the root
+    private static int[] children = new int[ALPHABET * 64];
+    // keyword ordinal for nodes where a keyword ends or -1
+    private static int[] terminals = new int[64];
+    private static int nodeCount = 1;
+
+    static {
+        Arrays.fill(terminals, -1);
+        for (Keyword keyword : VALUES) {
+            int node = 0;
+            for (int i = 0; i < keyword.text.length(); i++) {
+                int index = node * ALPHABET + letter(keyword.text.charAt(i));
+                if (children[index] == 0) {
+                    // newNode may grow children, so don't evaluate children[index] = newNode() in one go
+                    int child = newNode();
+                    children[index] = child;
+                }
+                node = children[index];
+            }
+            terminals[node] = keyword.ordinal();
+        }
+        children = Arrays.copyOf(children, nodeCount * ALPHABET);
+        terminals = Arrays.copyOf(terminals, nodeCount);
+    }
+
+    private final String text;
+    private final int anchor;
+    private final long anchorValue;
+    // for keywords that are shorthand for now plus some amount
+    private final DateUnit unit;
+    private final long amount;
+
+    private Keyword(String text, int anchor, long anchorValue) {
+        this.text = text;
+        this.anchor = anchor;
+        this.anchorValue = anchorValue;
+        this.unit = null;
+        this.amount = 0;
+    }
+
+    private Keyword(String text, DateUnit unit, long amount) {
+        this.text = text;
+        this.anchor = CompiledDateMath.NOW;
+        this.anchorValue = 0;
+        this.unit = unit;
+        this.amount = amount;
+    }
+
+    /**
+     * @return the keyword as it is normally written, e.g. "beginning month"
+     */
+    String text() {
+        return text;
+    }
+
+    /**
+     * @param expression
+     *            the expression the keyword was matched in
+     * @return the compiled keyword
+     */
+    CompiledDateMath compile(String expression) {
+        if (unit == null) {
+            return new CompiledDateMath(expression, anchor, anchorValue, 0);
+        }
+        return new CompiledDateMath(expression, anchor, anchorValue, 0, new DateUnit[] { unit }, new long[] { amount });
+    }
+
+    /**
+     * @param text
+     *            text
+     * @param start
+     *            start index (inclusive)
+     * @param end
+     *            end index (exclusive)
+     * @return the keyword that exactly matches the text between start and end or null
+     */
+    static Keyword match(CharSequence text, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            int letter = letter(text.charAt(i));
+            if (letter < 0) {
+                return null;
+            }
+            node = children[node * ALPHABET + letter];
+            if (node == 0) {
+                return null;
+            }
+        }
+        int keyword = terminals[node];
+        return keyword < 0 ? null : VALUES[keyword];
+    }
+
+    /**
+     * @return 0-25 for ascii letters in either case, 26 for ' ' and '_', or -1
+     */
+    private static int letter(char c) {
+        if (c == ' ' || c == '_') {
+            return 26;
+        }
+        int lower = c | 0x20;
+        return lower >= 'a' && lower <= 'z' ? lower - 'a' : -1;
+    }
+
+    private static int newNode() {
+        if (nodeCount == terminals.length) {
+            terminals = Arrays.copyOf(terminals, nodeCount * 2);
+            Arrays.fill(terminals, nodeCount, nodeCount * 2, -1);
+            children = Arrays.copyOf(children, nodeCount * 2 * ALPHABET);
+        }
+        return nodeCount++;
+    }
+}
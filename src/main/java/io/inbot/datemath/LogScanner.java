@@ -0,0 +1,240 @@
+package io.inbot.datemath;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Finds the lines in a log file with a timestamp in a time window. The file is memory mapped and the timestamp at the
+ * start of each line (everything up to the first space or tab, e.g. "2015-01-01T10:00:00.000Z INFO ...") is parsed
+ * straight from the mapped bytes, without decoding anything to a String. Only iso instants in UTC count as timestamps;
+ * anything else DateMath accepts, like "2014" or "10:00", is far too likely to be the start of a continuation line.
+ *
+ * Log files are assumed to be sorted by time, so the start of a window is found with a binary search over the file
+ * instead of by scanning from the start. Lines that don't start with a timestamp, like stack traces, are skipped.
+ *
+ * Files larger than 2GB are mapped in multiple segments. Instances are not thread safe. The mapped memory is released
+ * when the scanner is garbage collected; close only closes the file.
+ */
+public final class LogScanner implements Closeable {
+    private static final int SEGMENT_BITS = 30;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int MAX_TIMESTAMP_LENGTH = 64;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+    private final byte[] token = new byte[MAX_TIMESTAMP_LENGTH];
+    private final AsciiSequence tokenSequence = new AsciiSequence();
+    private final IsoScanner scanner = new IsoScanner();
+    // timestamp of the line last found by nextTimestampedLine
+    private long lineMillis;
+
+    private LogScanner(FileChannel channel) throws IOException {
+        this.channel = channel;
+        size = channel.size();
+        segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+        for (int i = 0; i < segments.length; i++) {
+            long position = (long) i << SEGMENT_BITS;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+        }
+    }
+
+    /**
+     * @param path
+     *            log file
+     * @return a scanner for the file
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public static LogScanner open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new LogScanner(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return size of the file in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param lineOffset
+     *            offset of the start of a line
+     * @return epoch millis of the iso instant (e.g. "2015-01-01T10:00:00.000Z") at the start of the line or
+     *         DateMath.INVALID_EPOCH if it does not start with one
+     */
+    public long timestamp(long lineOffset) {
+        int length = 0;
+        for (long pos = lineOffset; pos < size; pos++) {
+            byte b = get(pos);
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                break;
+            }
+            if (length == MAX_TIMESTAMP_LENGTH) {
+                // way too long for a timestamp
+                return DateMath.INVALID_EPOCH;
+            }
+            token[length++] = b;
+        }
+        if (length == 0) {
+            return DateMath.INVALID_EPOCH;
+        }
+        if (scanner.scan(tokenSequence.reset(token, 0, length), 0, length) != IsoScanner.INSTANT) {
+            return DateMath.INVALID_EPOCH;
+        }
+        return scanner.epochSecond * 1000 + scanner.nano / 1_000_000;
+    }
+
+    /**
+     * Binary searches for the first line with a timestamp at or after fromMillis.
+     *
+     * @param fromMillis
+     *            start of the window (inclusive)
+     * @return offset of the line or -1 if there is no such line
+     */
+    public long seek(long fromMillis) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            long line = nextTimestampedLine(lineStartAtOrAfter(middle));
+            if (line < 0 || lineMillis >= fromMillis) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        long line = nextTimestampedLine(lineStartAtOrAfter(low));
+        return line >= 0 && lineMillis >= fromMillis ? line : -1;
+    }
+
+    /**
+     * @param fromMillis
+     *            start of the window (inclusive)
+     * @param toMillis
+     *            end of the window (exclusive)
+     * @return offsets of the lines with a timestamp in [fromMillis, toMillis), in file order. Lines without a timestamp
+     *         are skipped.
+     */
+    public PrimitiveIterator.OfLong lines(long fromMillis, long toMillis) {
+        long first = seek(fromMillis);
+        return new LineIterator(first >= 0 && lineMillis < toMillis ? first : -1, fromMillis, toMillis);
+    }
+
+    /**
+     * @param from
+     *            start of the window (inclusive); any expression supported by DateMath, e.g. "now-2h"
+     * @param to
+     *            end of the window (exclusive); evaluated against the same now as from
+     * @return offsets of the lines with a timestamp in the window, in file order.
+     * @throws IllegalArgumentException
+     *             if from or to are not valid expressions
+     */
+    public PrimitiveIterator.OfLong lines(String from, String to) {
+        long now = DateMath.getClock().millis();
+        return lines(parseBound(from, now), parseBound(to, now));
+    }
+
+    private static long parseBound(String expression, long now) {
+        long millis = DateMath.parseEpochMillis(expression, now);
+        if (millis == DateMath.INVALID_EPOCH) {
+            throw new IllegalArgumentException(DateMath.validate(expression).getMessage());
+        }
+        return millis;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte get(long pos) {
+        return segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & (SEGMENT_SIZE - 1)));
+    }
+
+    private long lineStartAtOrAfter(long pos) {
+        if (pos == 0 || pos >= size || get(pos - 1) == '\n') {
+            return pos;
+        }
+        return lineAfter(pos);
+    }
+
+    /**
+     * @return start of the line after the one that pos is in, or size
+     */
+    private long lineAfter(long pos) {
+        while (pos < size) {
+            MappedByteBuffer segment = segments[(int) (pos >>> SEGMENT_BITS)];
+            int index = (int) (pos & (SEGMENT_SIZE - 1));
+            int limit = segment.limit();
+            while (index < limit) {
+                if (segment.get(index++) == '\n') {
+                    return (pos & ~(long) (SEGMENT_SIZE - 1)) + index;
+                }
+            }
+            pos = (pos & ~(long) (SEGMENT_SIZE - 1)) + limit;
+        }
+        return size;
+    }
+
+    /**
+     * @return the first line at or after the line starting at pos that has a timestamp, or -1. Sets lineMillis.
+     */
+    private long nextTimestampedLine(long pos) {
+        while (pos < size) {
+            long millis = timestamp(pos);
+            if (millis != DateMath.INVALID_EPOCH) {
+                lineMillis = millis;
+                return pos;
+            }
+            pos = lineAfter(pos);
+        }
+        return -1;
+    }
+
+    private final class LineIterator implements PrimitiveIterator.OfLong {
+        private final long fromMillis;
+        private final long toMillis;
+        private long next;
+
+        LineIterator(long first, long fromMillis, long toMillis) {
+            this.next = first;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public long nextLong() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            long line = next;
+            next = nextTimestampedLine(lineAfter(line));
+            // skip the odd line that is out of order
+            while (next >= 0 && lineMillis < fromMillis) {
+                next = nextTimestampedLine(lineAfter(next));
+            }
+            if (next >= 0 && lineMillis >= toMillis) {
+                next = -1;
+            }
+            return line;
+        }
+    }
+}
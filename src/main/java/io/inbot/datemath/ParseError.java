@@ -0,0 +1,25 @@
+package io.inbot.datemath;
+
+/**
+ * Mutable holder for the first problem found while compiling an expression. Lets the compiler report errors without
+ * throwing so that validation does not depend on exceptions.
+ */
+final class ParseError {
+    ValidationResult.Error error;
+    int offset = -1;
+    String message;
+
+    /**
+     * @return null so that callers can return the result of this directly
+     */
+    CompiledDateMath set(ValidationResult.Error error, int offset, String message) {
+        this.error = error;
+        this.offset = offset;
+        this.message = message;
+        return null;
+    }
+
+    ValidationResult toResult() {
+        return new ValidationResult(error, offset, message);
+    }
+}
@@ -0,0 +1,157 @@
+package io.inbot.datemath;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.TextStyle;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders the same labels as DateMath.renderMonthYear ("October, 1974") and DateMath.renderWeekYear ("42, 1974") for
+ * one zone and locale, but remembers every label it renders. Rendering a label for a period that was rendered before is
+ * a table lookup, and with the append methods a copy, which helps when labelling every row of a large export.
+ *
+ * Labels for the years 1900 until 2100 are cached; other years are rendered every time. Instances are thread safe.
+ */
+public final class PeriodLabelRenderer {
+    private static final int FROM_YEAR = 1900;
+    private static final int TO_YEAR = 2100;
+    // weeks as in ChronoField.ALIGNED_WEEK_OF_YEAR
+    private static final int WEEKS_PER_YEAR = 53;
+    private static final ConcurrentHashMap<Locale, String[]> MONTH_NAMES = new ConcurrentHashMap<>();
+
+    private final ZoneId zone;
+    private final String[] monthNames;
+    // filled in on first use; racing threads at worst render the same label twice
+    private final String[] monthLabels = new String[(TO_YEAR - FROM_YEAR + 1) * 12];
+    private final String[] weekLabels = new String[(TO_YEAR - FROM_YEAR + 1) * WEEKS_PER_YEAR];
+
+    /**
+     * @param zone
+     *            zone that determines the month and week of an instant
+     * @param locale
+     *            locale for the month names
+     */
+    public PeriodLabelRenderer(ZoneId zone, Locale locale) {
+        this.zone = zone != null ? zone : ZoneOffset.UTC;
+        monthNames = monthNames(locale);
+    }
+
+    /**
+     * @return the full names of the months in the locale, january first
+     */
+    static String[] monthNames(Locale locale) {
+        String[] names = MONTH_NAMES.get(locale);
+        if (names == null) {
+            names = new String[12];
+            for (int i = 0; i < 12; i++) {
+                names[i] = Month.of(i + 1).getDisplayName(TextStyle.FULL, locale);
+            }
+            // a handful of locales at most
+            MONTH_NAMES.putIfAbsent(locale, names);
+        }
+        return names;
+    }
+
+    public String renderMonthYear(Instant instant) {
+        return renderMonthYear(instant.toEpochMilli());
+    }
+
+    /**
+     * @param epochMillis
+     *            timestamp
+     * @return month and year of the timestamp in the zone, e.g. "October, 1974"
+     */
+    public String renderMonthYear(long epochMillis) {
+        long civil = civil(epochMillis);
+        long year = EpochMath.year(civil);
+        int month = EpochMath.month(civil);
+        if (year < FROM_YEAR || year > TO_YEAR) {
+            return monthNames[month - 1] + ", " + year;
+        }
+        int index = (int) (year - FROM_YEAR) * 12 + month - 1;
+        String label = monthLabels[index];
+        if (label == null) {
+            label = monthNames[month - 1] + ", " + year;
+            monthLabels[index] = label;
+        }
+        return label;
+    }
+
+    public String renderWeekYear(Instant instant) {
+        return renderWeekYear(instant.toEpochMilli());
+    }
+
+    /**
+     * @param epochMillis
+     *            timestamp
+     * @return week of year (weeks start on january 1st, like ChronoField.ALIGNED_WEEK_OF_YEAR) and year of the timestamp
+     *         in the zone, e.g. "42, 1974"
+     */
+    public String renderWeekYear(long epochMillis) {
+        long civil = civil(epochMillis);
+        long year = EpochMath.year(civil);
+        int week = (int) ((EpochMath.epochDay(year, EpochMath.month(civil), EpochMath.day(civil)) - EpochMath.epochDay(year, 1, 1)) / 7) + 1;
+        if (year < FROM_YEAR || year > TO_YEAR) {
+            return week + ", " + year;
+        }
+        int index = (int) (year - FROM_YEAR) * WEEKS_PER_YEAR + week - 1;
+        String label = weekLabels[index];
+        if (label == null) {
+            label = week + ", " + year;
+            weekLabels[index] = label;
+        }
+        return label;
+    }
+
+    /**
+     * Appends renderMonthYear(epochMillis) to out.
+     *
+     * @return out
+     */
+    public StringBuilder appendMonthYear(long epochMillis, StringBuilder out) {
+        return out.append(renderMonthYear(epochMillis));
+    }
+
+    /**
+     * Appends renderMonthYear(epochMillis) to out.
+     *
+     * @return out
+     * @throws IOException
+     *             if out throws it
+     */
+    public <T extends Appendable> T appendMonthYear(long epochMillis, T out) throws IOException {
+        out.append(renderMonthYear(epochMillis));
+        return out;
+    }
+
+    /**
+     * Appends renderWeekYear(epochMillis) to out.
+     *
+     * @return out
+     */
+    public StringBuilder appendWeekYear(long epochMillis, StringBuilder out) {
+        return out.append(renderWeekYear(epochMillis));
+    }
+
+    /**
+     * Appends renderWeekYear(epochMillis) to out.
+     *
+     * @return out
+     * @throws IOException
+     *             if out throws it
+     */
+    public <T extends Appendable> T appendWeekYear(long epochMillis, T out) throws IOException {
+        out.append(renderWeekYear(epochMillis));
+        return out;
+    }
+
+    private long civil(long epochMillis) {
+        long epochSecond = Math.floorDiv(epochMillis, 1000);
+        long localSeconds = epochSecond + CompiledDateMath.offset(zone, epochSecond);
+        return EpochMath.civil(Math.floorDiv(localSeconds, EpochMath.SECONDS_PER_DAY));
+    }
+}
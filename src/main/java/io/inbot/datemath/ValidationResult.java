@@ -0,0 +1,83 @@
+package io.inbot.datemath;
+
+/**
+ * Outcome of DateMath.validate. Tells you whether an expression can be parsed and, if not, what is wrong with it and
+ * where, so you can point users at the problem without catching and inspecting exceptions.
+ */
+public final class ValidationResult {
+    /**
+     * What is wrong with an invalid expression.
+     */
+    public enum Error {
+        /**
+         * Null or blank input.
+         */
+        EMPTY,
+        /**
+         * Not an iso timestamp, keyword or duration expression.
+         */
+        UNKNOWN_EXPRESSION,
+        /**
+         * Looks like an iso timestamp but one of the fields has an invalid value, e.g. "2015-02-30".
+         */
+        BAD_ISO_FIELD,
+        /**
+         * The right hand side of a + or - is not a duration like "1d".
+         */
+        BAD_DURATION,
+        /**
+         * Unsupported time unit in a duration.
+         */
+        BAD_UNIT,
+        /**
+         * The amount in a duration is too large.
+         */
+        BAD_AMOUNT,
+        /**
+         * The expression is well formed but the result is outside the supported range of dates.
+         */
+        OUT_OF_RANGE
+    }
+
+    static final ValidationResult VALID = new ValidationResult(null, -1, null);
+
+    private final Error error;
+    private final int errorOffset;
+    private final String message;
+
+    ValidationResult(Error error, int errorOffset, String message) {
+        this.error = error;
+        this.errorOffset = errorOffset;
+        this.message = message;
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    /**
+     * @return what is wrong or null if the expression is valid
+     */
+    public Error getError() {
+        return error;
+    }
+
+    /**
+     * @return offset in the validated text where the problem starts or -1 if the expression is valid
+     */
+    public int getErrorOffset() {
+        return errorOffset;
+    }
+
+    /**
+     * @return the message that parse would have thrown or null if the expression is valid
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "valid" : error + " at " + errorOffset + ": " + message;
+    }
+}
@@ -0,0 +1,39 @@
+package io.inbot.datemath;
+
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves zone id strings the way ZoneId.of(zoneId, ZoneId.SHORT_IDS) does but remembers the result, so that resolving
+ * the same zone again is a single hash lookup. Region zones keep a reference to their ZoneRules, so those are only
+ * loaded once as well.
+ *
+ * There are only a few hundred region ids but offsets can be spelled in lots of ways, so the cache stops growing once
+ * it is full. Invalid ids are never cached.
+ */
+final class ZoneIds {
+    static final int MAX_SIZE = 2048;
+
+    private static final ConcurrentHashMap<String, ZoneId> ZONES = new ConcurrentHashMap<>();
+
+    private ZoneIds() {
+    }
+
+    static ZoneId of(String zoneId) {
+        if (zoneId == null) {
+            throw new NullPointerException("zoneId");
+        }
+        ZoneId zone = ZONES.get(zoneId);
+        if (zone == null) {
+            zone = ZoneId.of(zoneId, ZoneId.SHORT_IDS);
+            if (ZONES.size() < MAX_SIZE) {
+                ZONES.putIfAbsent(zoneId, zone);
+            }
+        }
+        return zone;
+    }
+
+    static int size() {
+        return ZONES.size();
+    }
+}
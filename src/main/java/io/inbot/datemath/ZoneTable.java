@@ -0,0 +1,198 @@
+package io.inbot.datemath;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The offset transitions of a zone in a range of years, copied from its ZoneRules into primitive arrays. Looking up an
+ * offset or converting a local date time to epoch seconds is then a binary search over a handful of longs instead of a
+ * trip through ZoneRules and ZonedDateTime. Outside of the range we fall back to ZoneRules.
+ *
+ * Tables are built on first use and shared. Like ZoneIds, the cache stops growing once it is full.
+ */
+final class ZoneTable {
+    static final int DEFAULT_FROM_YEAR = 1900;
+    static final int DEFAULT_TO_YEAR = 2100;
+
+    private static final ConcurrentHashMap<ZoneId, ZoneTable> TABLES = new ConcurrentHashMap<>();
+    private static volatile int fromYear = DEFAULT_FROM_YEAR;
+    private static volatile int toYear = DEFAULT_TO_YEAR;
+
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    // epoch seconds covered by the table: [from, until)
+    private final long from;
+    private final long until;
+    // epoch seconds at which the offset changes
+    private final long[] transitions;
+    // offsets[i] applies before transitions[i]; the last one after the last transition
+    private final int[] offsets;
+    // local seconds from which on the offset after transitions[i] is used to convert back to epoch seconds
+    private final long[] localTransitions;
+
+    private ZoneTable(ZoneId zone, int fromYear, int toYear) {
+        this.zone = zone;
+        rules = zone.getRules();
+        from = EpochMath.epochDay(fromYear, 1, 1) * EpochMath.SECONDS_PER_DAY;
+        until = EpochMath.epochDay(toYear + 1L, 1, 1) * EpochMath.SECONDS_PER_DAY;
+        long[] transitions = new long[16];
+        int[] offsets = new int[17];
+        offsets[0] = rules.getOffset(Instant.ofEpochSecond(from)).getTotalSeconds();
+        int count = 0;
+        ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochSecond(from));
+        while (transition != null && transition.toEpochSecond() < until) {
+            if (count == transitions.length) {
+                transitions = Arrays.copyOf(transitions, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2 + 1);
+            }
+            transitions[count] = transition.toEpochSecond();
+            offsets[++count] = transition.getOffsetAfter().getTotalSeconds();
+            transition = rules.nextTransition(transition.getInstant());
+        }
+        this.transitions = Arrays.copyOf(transitions, count);
+        this.offsets = Arrays.copyOf(offsets, count + 1);
+        localTransitions = new long[count];
+        for (int i = 0; i < count; i++) {
+            // local times in a gap or overlap use the offset before the transition, like ZonedDateTime.ofLocal
+            localTransitions[i] = transitions[i] + Math.max(offsets[i], offsets[i + 1]);
+        }
+    }
+
+    /**
+     * @return the table for a region zone
+     */
+    static ZoneTable of(ZoneId zone) {
+        ZoneTable table = TABLES.get(zone);
+        if (table == null) {
+            table = new ZoneTable(zone, fromYear, toYear);
+            if (TABLES.size() < ZoneIds.MAX_SIZE) {
+                ZoneTable existing = TABLES.putIfAbsent(zone, table);
+                if (existing != null) {
+                    table = existing;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Changes the years that new tables cover and drops the existing ones.
+     */
+    static void setRange(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            throw new IllegalArgumentException("fromYear should not be after toYear");
+        }
+        if (fromYear < -999_999_999 || toYear >= 999_999_999) {
+            throw new IllegalArgumentException("years should be within the range of LocalDateTime");
+        }
+        ZoneTable.fromYear = fromYear;
+        ZoneTable.toYear = toYear;
+        TABLES.clear();
+    }
+
+    static int fromYear() {
+        return fromYear;
+    }
+
+    static int toYear() {
+        return toYear;
+    }
+
+    /**
+     * @return offset in seconds from UTC at the instant
+     */
+    int offset(long epochSecond) {
+        if (epochSecond < from || epochSecond >= until) {
+            return rules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+        }
+        return offsets[upperBound(transitions, epochSecond)];
+    }
+
+    /**
+     * Converts a local date time in seconds back to epoch seconds the way ZonedDateTime.ofLocal does: times in a gap
+     * are moved forward by the length of the gap and the earlier offset is used for times in an overlap.
+     */
+    long toEpochSecond(long localSeconds) {
+        // one day of slack for the offset
+        if (localSeconds < from + EpochMath.SECONDS_PER_DAY || localSeconds >= until - EpochMath.SECONDS_PER_DAY) {
+            LocalDateTime localDateTime = LocalDateTime.ofEpochSecond(localSeconds, 0, ZoneOffset.UTC);
+            return ZonedDateTime.ofLocal(localDateTime, zone, null).toEpochSecond();
+        }
+        return localSeconds - offsets[upperBound(localTransitions, localSeconds)];
+    }
+
+    /**
+     * Like toEpochSecond(localSeconds) but keeps the preferred offset when it is valid for the local date time, like
+     * ZonedDateTime.ofLocal with a preferred offset. This matters for times in an overlap, which have two valid offsets.
+     *
+     * @param preferredOffset
+     *            offset in seconds, typically the one of the instant the local date time was derived from
+     */
+    long toEpochSecond(long localSeconds, int preferredOffset) {
+        long epochSecond = localSeconds - preferredOffset;
+        if (offset(epochSecond) == preferredOffset) {
+            return epochSecond;
+        }
+        return toEpochSecond(localSeconds);
+    }
+
+    /**
+     * @return the last transition at or before the instant or Long.MIN_VALUE if there is none
+     */
+    long transitionAtOrBefore(long epochSecond) {
+        if (epochSecond >= from && epochSecond < until) {
+            int index = upperBound(transitions, epochSecond);
+            if (index > 0) {
+                return transitions[index - 1];
+            }
+        }
+        // previousTransition is strictly before the instant
+        ZoneOffsetTransition transition = rules.previousTransition(Instant.ofEpochSecond(epochSecond + 1));
+        return transition == null ? Long.MIN_VALUE : transition.toEpochSecond();
+    }
+
+    /**
+     * @return the first transition after the instant or Long.MAX_VALUE if there is none
+     */
+    long transitionAfter(long epochSecond) {
+        if (epochSecond >= from && epochSecond < until) {
+            int index = upperBound(transitions, epochSecond);
+            if (index < transitions.length) {
+                return transitions[index];
+            }
+        }
+        ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochSecond(epochSecond));
+        return transition == null ? Long.MAX_VALUE : transition.toEpochSecond();
+    }
+
+    /**
+     * @return number of transitions in the table
+     */
+    int size() {
+        return transitions.length;
+    }
+
+    /**
+     * @return the number of values in the sorted array that are less than or equal to key
+     */
+    private static int upperBound(long[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,49 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.testng.annotations.Test;
+
+@Test
+public class CachedClockTest {
+
+    public void shouldBeCloseToSystemClock() throws InterruptedException {
+        try (CachedClock clock = new CachedClock(5)) {
+            Thread.sleep(20);
+            assertThat(Math.abs(clock.millis() - System.currentTimeMillis())).isLessThan(1000);
+            assertThat(clock.getZone()).isEqualTo(ZoneOffset.UTC);
+        }
+    }
+
+    public void shouldShareTickerWithZonedCopies() {
+        try (CachedClock clock = new CachedClock(1000)) {
+            Clock berlin = clock.withZone(ZoneId.of("Europe/Berlin"));
+            assertThat(berlin.getZone()).isEqualTo(ZoneId.of("Europe/Berlin"));
+            assertThat(berlin.millis()).isEqualTo(clock.millis());
+            assertThat(clock.withZone(ZoneOffset.UTC)).isSameAs(clock);
+        }
+    }
+
+    public void shouldStopTicking() throws InterruptedException {
+        CachedClock clock = new CachedClock(1);
+        clock.close();
+        Thread.sleep(20);
+        long millis = clock.millis();
+        Thread.sleep(20);
+        assertThat(clock.millis()).isEqualTo(millis);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectZeroResolution() {
+        new CachedClock(0);
+    }
+
+    public void shouldWorkAsReferenceClock() {
+        try (CachedClock clock = new CachedClock(10)) {
+            assertThat(Math.abs(DateMath.parse("now", clock).toEpochMilli() - System.currentTimeMillis())).isLessThan(1000);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import org.testng.annotations.Test;
+
+@Test
+public class CalendarStepsTest {
+    private static final long JAN_31 = Instant.parse("2015-01-31T10:00:00Z").toEpochMilli();
+
+    public void shouldStepMonthsFromStart() {
+        CalendarSteps steps = CalendarSteps.of(JAN_31, Instant.parse("2015-06-01T00:00:00Z").toEpochMilli(), "1m", ZoneOffset.UTC);
+        assertThat(steps.stream().mapToObj(millis -> Instant.ofEpochMilli(millis).toString()).collect(Collectors.toList())).containsExactly(
+                "2015-01-31T10:00:00Z", "2015-02-28T10:00:00Z", "2015-03-31T10:00:00Z", "2015-04-30T10:00:00Z", "2015-05-31T10:00:00Z");
+        assertThat(steps.size()).isEqualTo(5);
+    }
+
+    public void shouldExcludeEnd() {
+        long start = Instant.parse("2015-01-01T00:00:00Z").toEpochMilli();
+        assertThat(CalendarSteps.of(start, start + 7 * 86_400_000L, "1d", ZoneOffset.UTC).size()).isEqualTo(7);
+        assertThat(CalendarSteps.of(start, start + 7 * 86_400_000L + 1, "1d", ZoneOffset.UTC).size()).isEqualTo(8);
+        assertThat(CalendarSteps.of(start, start, "1d", ZoneOffset.UTC).size()).isEqualTo(0);
+        assertThat(CalendarSteps.of(start, start - 1, "1d", ZoneOffset.UTC).iterator().hasNext()).isFalse();
+    }
+
+    public void shouldParseExpressions() {
+        CalendarSteps steps = CalendarSteps.of("2015-01-01", "2015-03-01", "1w");
+        assertThat(steps.size()).isEqualTo(9);
+        assertThat(Instant.ofEpochMilli(steps.get(8))).isEqualTo(Instant.parse("2015-02-26T00:00:00Z"));
+    }
+
+    public void shouldStepInLocalTime() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        CalendarSteps steps = CalendarSteps.of("2015-03-28", "2015-03-31", "1d", berlin);
+        assertThat(steps.stream().mapToObj(millis -> Instant.ofEpochMilli(millis).toString()).collect(Collectors.toList())).containsExactly(
+                "2015-03-27T23:00:00Z", "2015-03-28T23:00:00Z", "2015-03-29T22:00:00Z");
+    }
+
+    public void shouldStartAtStartInOverlap() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        // 02:30 local time for the second time
+        long start = Instant.parse("2015-10-25T01:30:00Z").toEpochMilli();
+        CalendarSteps steps = CalendarSteps.of(start, Instant.parse("2015-10-27T00:00:00Z").toEpochMilli(), "1d", berlin);
+        assertThat(steps.get(0)).isEqualTo(start);
+        assertThat(steps.stream().mapToObj(millis -> Instant.ofEpochMilli(millis).toString()).collect(Collectors.toList())).containsExactly(
+                "2015-10-25T01:30:00Z", "2015-10-26T01:30:00Z");
+        assertThat(steps.spliterator().trySplit()).isNotNull();
+        assertThat(CalendarSteps.of(start, start + 1, "1h", berlin).iterator().nextLong()).isEqualTo(start);
+    }
+
+    public void shouldAgreeWithJavaTime() {
+        for (String id : new String[] { "UTC", "Europe/Berlin", "America/New_York" }) {
+            ZoneId zone = ZoneId.of(id);
+            for (String step : new String[] { "1h", "1d", "1w", "1m", "3m", "1y" }) {
+                long start = Instant.parse("2012-02-29T01:30:00Z").toEpochMilli();
+                long end = Instant.parse("2016-03-01T00:00:00Z").toEpochMilli();
+                CalendarSteps steps = CalendarSteps.of(start, end, step, zone);
+                PrimitiveIterator.OfLong iterator = steps.iterator();
+                ZonedDateTime zoned = Instant.ofEpochMilli(start).atZone(zone);
+                long count = 0;
+                // like ZonedDateTime.plusDays, the offset of the start is kept where it is valid
+                for (long expected = start; expected < end; expected = ZonedDateTime.ofLocal(plus(zoned.toLocalDateTime(), step, ++count), zone, zoned.getOffset()).toInstant().toEpochMilli()) {
+                    assertThat(iterator.nextLong()).as(id + " " + step + " " + count).isEqualTo(expected);
+                }
+                assertThat(iterator.hasNext()).isFalse();
+                assertThat(steps.size()).isEqualTo(count);
+            }
+        }
+    }
+
+    private static LocalDateTime plus(LocalDateTime local, String step, long n) {
+        switch (step) {
+        case "1h":
+            return local.plusHours(n);
+        case "1d":
+            return local.plusDays(n);
+        case "1w":
+            return local.plusWeeks(n);
+        case "1m":
+            return local.plusMonths(n);
+        case "3m":
+            return local.plusMonths(3 * n);
+        default:
+            return local.plusYears(n);
+        }
+    }
+
+    public void shouldSplitForParallelStreams() {
+        CalendarSteps steps = CalendarSteps.of(0, 365L * 100 * 86_400_000L, "1d", ZoneId.of("Europe/Berlin"));
+        assertThat(steps.parallelStream().sum()).isEqualTo(steps.stream().sum());
+        assertThat(steps.parallelStream().count()).isEqualTo(steps.size());
+        Spliterator.OfLong spliterator = steps.spliterator();
+        Spliterator.OfLong prefix = spliterator.trySplit();
+        assertThat(prefix.estimateSize() + spliterator.estimateSize()).isEqualTo(steps.size());
+        long[] firstOfSuffix = new long[1];
+        spliterator.tryAdvance((long millis) -> firstOfSuffix[0] = millis);
+        assertThat(firstOfSuffix[0]).isEqualTo(steps.get(prefix.estimateSize()));
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void shouldRejectStepsOutOfRange() {
+        CalendarSteps.of(0, 86_400_000L, "1h", ZoneOffset.UTC).get(24);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidStep() {
+        CalendarSteps.of("now-1d", "now", "1x");
+    }
+}
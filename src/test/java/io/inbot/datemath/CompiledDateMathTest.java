@@ -0,0 +1,181 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@Test
+public class CompiledDateMathTest {
+    // a tuesday
+    private static final Instant NOW = Instant.parse("2015-03-10T12:34:56.789Z");
+
+    @DataProvider
+    Object[][] expressions() {
+        return new Object[][] {
+            {"now", "2015-03-10T12:34:56.789Z"},
+            {"now-1d", "2015-03-09T12:34:56.789Z"},
+            {"-1w", "2015-03-03T12:34:56.789Z"},
+            {"1m", "2015-04-10T12:34:56.789Z"},
+            {"next year", "2016-03-10T12:34:56.789Z"},
+            {"beginning month", "2015-03-01T00:00:00.000Z"},
+            {"end month", "2015-04-01T00:00:00.000Z"},
+            {"beginning year", "2015-01-01T00:00:00.000Z"},
+            {"end year", "2016-01-01T00:00:00.000Z"},
+            {"beginning week", "2015-03-08T00:00:00.000Z"},
+            {"end week", "2015-03-15T00:00:00.000Z"},
+            {"Day_Before_Yesterday", "2015-03-08T00:00:00.000Z"},
+            {"tomorrow", "2015-03-11T00:00:00.000Z"},
+            {"noon", "2015-03-10T12:00:00.000Z"},
+            {"10:00 -1d", "2015-03-09T10:00:00.000Z"},
+            {"2015-01-31+1m", "2015-02-28T00:00:00.000Z"},
+            {"2016-02-29T10:00:00Z + 1y", "2017-02-28T10:00:00.000Z"},
+            {"yesterday - 100y", "1915-03-09T00:00:00.000Z"},
+            {"distant past", "1970-01-01T00:00:00.000Z"},
+            {"max", "9999-12-31T00:00:00.000Z"},
+            {"now-5ms", "2015-03-10T12:34:56.784Z"},
+            {"2015-01-01T00:00:00Z+1d-2h+30s", "2015-01-01T22:00:30.000Z"},
+            {"2015-01-01 - 1d + 2h - 30s + 1w", "2015-01-07T01:59:30.000Z"},
+            {"-1d-1d-1d", "2015-03-07T12:34:56.789Z"},
+            {"2015-01+1m", "2015-02-01T00:00:00.000Z"},
+            {"2015-01+1M", "2015-02-01T00:00:00.000Z"},
+            {"now/d", "2015-03-10T00:00:00.000Z"},
+            {"now-1d/d", "2015-03-09T00:00:00.000Z"},
+            {"now/d-1d", "2015-03-09T00:00:00.000Z"},
+            {"now / h", "2015-03-10T12:00:00.000Z"},
+            {"now/s", "2015-03-10T12:34:56.000Z"},
+            {"now/ms", "2015-03-10T12:34:56.789Z"},
+            {"now/w", "2015-03-09T00:00:00.000Z"},
+            {"now/M", "2015-03-01T00:00:00.000Z"},
+            {"now/y", "2015-01-01T00:00:00.000Z"},
+            {"2015-01-04/w", "2014-12-29T00:00:00.000Z"}
+        };
+    }
+
+    @Test(dataProvider="expressions")
+    public void shouldEvaluateAgainstReferenceInstant(String expression, String expected) {
+        CompiledDateMath compiled = DateMath.compile(expression);
+        assertThat(DateMath.formatIsoDate(compiled.evaluate(NOW, ZoneOffset.UTC))).isEqualTo(expected);
+    }
+
+    public void shouldEvaluateAgainstClock() {
+        CompiledDateMath compiled = DateMath.compile("now-1d");
+        Instant evaluated = compiled.evaluate(Clock.fixed(NOW, ZoneOffset.UTC));
+        assertThat(evaluated).isEqualTo(Instant.parse("2015-03-09T12:34:56.789Z"));
+        assertThat(compiled.evaluate(Clock.fixed(NOW.plusSeconds(1), ZoneOffset.UTC))).isEqualTo(evaluated.plusSeconds(1));
+    }
+
+    public void shouldEvaluateDatesInZone() {
+        CompiledDateMath compiled = DateMath.compile("2015-01-01");
+        assertThat(compiled.evaluate(NOW, ZoneOffset.ofHours(2))).isEqualTo(Instant.parse("2014-12-31T22:00:00Z"));
+    }
+
+    public void shouldKeepZoneForWholeChain() {
+        ZoneOffset plusTwo = ZoneOffset.ofHours(2);
+        assertThat(DateMath.compile("now").evaluate(NOW, plusTwo)).isEqualTo(NOW);
+        assertThat(DateMath.compile("2015-01-01+1d").evaluate(NOW, plusTwo)).isEqualTo(Instant.parse("2015-01-01T22:00:00Z"));
+        assertThat(DateMath.compile("2015-01-01T00:00:00Z+1d").evaluate(NOW, plusTwo)).isEqualTo(Instant.parse("2015-01-02T00:00:00Z"));
+        assertThat(DateMath.compile("10:00-1d").evaluate(NOW, plusTwo)).isEqualTo(Instant.parse("2015-03-09T08:00:00Z"));
+    }
+
+    public void shouldEvaluateInRegionZones() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        assertThat(DateMath.compile("2015-07-01").evaluate(NOW, berlin)).isEqualTo(Instant.parse("2015-06-30T22:00:00Z"));
+        assertThat(DateMath.compile("10:00").evaluate(NOW, berlin)).isEqualTo(Instant.parse("2015-03-10T09:00:00Z"));
+        // crosses the switch to summer time on the 29th; a day is a calendar day, not 24 hours
+        assertThat(DateMath.compile("2015-03-28T12:00:00Z+1d").evaluate(NOW, berlin)).isEqualTo(Instant.parse("2015-03-29T11:00:00Z"));
+    }
+
+    public void shouldAddHoursAcrossDstChanges() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        // just after the switch to summer time; an hour ago is still an hour ago
+        Instant afterSpringForward = Instant.parse("2020-03-29T01:30:00Z");
+        assertThat(DateMath.parse("now-1h", afterSpringForward, berlin)).isEqualTo(Instant.parse("2020-03-29T00:30:00Z"));
+        assertThat(DateMath.parseRange("now-1h..now", afterSpringForward, berlin).durationMillis()).isEqualTo(3_600_000);
+        Instant beforeFallBack = Instant.parse("2020-10-25T00:30:00Z");
+        assertThat(DateMath.parse("now+1h", beforeFallBack, berlin)).isEqualTo(Instant.parse("2020-10-25T01:30:00Z"));
+        assertThat(DateMath.parse("now+3600s", beforeFallBack, berlin)).isEqualTo(Instant.parse("2020-10-25T01:30:00Z"));
+        // days are still calendar days
+        assertThat(DateMath.parse("now+1d", beforeFallBack, berlin)).isEqualTo(Instant.parse("2020-10-26T01:30:00Z"));
+    }
+
+    public void shouldAddHoursLikeZonedDateTime() {
+        // Lord Howe shifts by 30 minutes; 2150 is outside the precomputed zone tables
+        for (String id : new String[] { "Europe/Berlin", "America/New_York", "Australia/Lord_Howe" }) {
+            ZoneId zone = ZoneId.of(id);
+            for (String start : new String[] { "2020-01-01T00:00:00Z", "2150-01-01T00:00:00Z" }) {
+                // every 20 minutes for a year
+                for (Instant now = Instant.parse(start); now.isBefore(Instant.parse(start).plusSeconds(366 * 86400L)); now = now.plusSeconds(1200)) {
+                    ZonedDateTime zoned = now.atZone(zone);
+                    assertThat(DateMath.parse("now-1h", now, zone)).as(id + " " + now).isEqualTo(zoned.minusHours(1).toInstant());
+                    assertThat(DateMath.parse("now+2h", now, zone)).as(id + " " + now).isEqualTo(zoned.plusHours(2).toInstant());
+                    assertThat(DateMath.parse("now-90s", now, zone)).as(id + " " + now).isEqualTo(zoned.minusSeconds(90).toInstant());
+                    assertThat(DateMath.parse("now+1d-1h", now, zone)).as(id + " " + now).isEqualTo(zoned.plusDays(1).minusHours(1).toInstant());
+                    assertThat(DateMath.parse("now-1h/d", now, zone)).as(id + " " + now)
+                            .isEqualTo(zoned.minusHours(1).truncatedTo(ChronoUnit.DAYS).toInstant());
+                    assertThat(DateMath.parse("now+0d", now, zone)).as(id + " " + now).isEqualTo(now);
+                    assertThat(DateMath.parse("now-1d", now, zone)).as(id + " " + now).isEqualTo(zoned.minusDays(1).toInstant());
+                    assertThat(DateMath.parse("now+1M/d", now, zone)).as(id + " " + now).isEqualTo(zoned.plusMonths(1).truncatedTo(ChronoUnit.DAYS).toInstant());
+                    assertThat(DateMath.parse("now/h", now, zone)).as(id + " " + now).isEqualTo(zoned.truncatedTo(ChronoUnit.HOURS).toInstant());
+                }
+            }
+        }
+    }
+
+    public void shouldRoundInOverlap() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        // 02:39:47 local for the second time, after the switch back to winter time
+        Instant now = Instant.parse("2015-10-25T01:39:47Z");
+        assertThat(DateMath.parse("now/h", now, berlin)).isEqualTo(Instant.parse("2015-10-25T01:00:00Z"));
+        assertThat(DateMath.parse("now/h", now, berlin, true)).isEqualTo(Instant.parse("2015-10-25T01:59:59.999Z"));
+        assertThat(DateMath.parse("now-1h/h", now, berlin)).isEqualTo(Instant.parse("2015-10-25T00:00:00Z"));
+        // the first time around
+        assertThat(DateMath.parse("now/h", now.minusSeconds(3600), berlin, true)).isEqualTo(Instant.parse("2015-10-25T00:59:59.999Z"));
+    }
+
+    public void shouldAddCalendarUnitsInOverlap() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        // 02:39:47 local for the second time, after the switch back to winter time
+        Instant now = Instant.parse("2015-10-25T01:39:47Z");
+        assertThat(DateMath.parse("now+0d", now, berlin)).isEqualTo(now);
+        assertThat(DateMath.parse("now+0y", now, berlin)).isEqualTo(now);
+        assertThat(DateMath.parse("now+1d", now, berlin)).isEqualTo(Instant.parse("2015-10-26T01:39:47Z"));
+        assertThat(DateMath.parse("now+1d-1d", now, berlin)).isEqualTo(now);
+        // the first time around; the day after is in winter time
+        assertThat(DateMath.parse("now+1d", now.minusSeconds(3600), berlin)).isEqualTo(Instant.parse("2015-10-26T01:39:47Z"));
+        assertThat(DateMath.parse("now-1d", now.minusSeconds(3600), berlin)).isEqualTo(Instant.parse("2015-10-24T00:39:47Z"));
+    }
+
+    public void shouldRoundUp() {
+        assertThat(DateMath.compile("now-1d/d").evaluate(NOW, ZoneOffset.UTC, true)).isEqualTo(Instant.parse("2015-03-09T23:59:59.999Z"));
+        assertThat(DateMath.compile("now/M").evaluate(NOW, ZoneOffset.UTC, true)).isEqualTo(Instant.parse("2015-03-31T23:59:59.999Z"));
+        assertThat(DateMath.compile("now/w").evaluate(NOW, ZoneOffset.UTC, true)).isEqualTo(Instant.parse("2015-03-15T23:59:59.999Z"));
+        assertThat(DateMath.compile("now/ms").evaluate(NOW, ZoneOffset.UTC, true)).isEqualTo(NOW);
+        // without rounding there is nothing to round up
+        assertThat(DateMath.compile("now-1d").evaluate(NOW, ZoneOffset.UTC, true)).isEqualTo(NOW.minusSeconds(86400));
+    }
+
+    public void shouldRoundInZone() {
+        assertThat(DateMath.compile("now/d").evaluate(NOW, ZoneOffset.ofHours(2))).isEqualTo(Instant.parse("2015-03-09T22:00:00Z"));
+        assertThat(DateMath.parse("now/d", NOW, ZoneOffset.ofHours(-2), true)).isEqualTo(Instant.parse("2015-03-11T01:59:59.999Z"));
+    }
+
+    public void shouldParseLongChains() {
+        StringBuilder expression = new StringBuilder("2015-01-01T00:00:00Z");
+        for (int i = 0; i < 10000; i++) {
+            expression.append("+1s");
+        }
+        assertThat(DateMath.compile(expression.toString()).evaluate(NOW, ZoneOffset.UTC)).isEqualTo(Instant.parse("2015-01-01T02:46:40Z"));
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class)
+    public void shouldRejectInvalidExpressions() {
+        DateMath.compile("now+1x");
+    }
+}
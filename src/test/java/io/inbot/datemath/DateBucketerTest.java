@@ -0,0 +1,138 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@Test
+public class DateBucketerTest {
+
+    @DataProvider
+    Object[][] buckets() {
+        return new Object[][] {
+            {"1d", "UTC", "2015-03-10T12:34:56.789Z", "2015-03-10T00:00:00Z"},
+            {"d", "+02:00", "2015-03-10T23:34:56.789Z", "2015-03-10T22:00:00Z"},
+            {"1h", "Asia/Kolkata", "2015-03-10T12:34:56.789Z", "2015-03-10T12:30:00Z"},
+            {"3h", "UTC", "2015-03-10T14:34:56.789Z", "2015-03-10T12:00:00Z"},
+            {"1s", "UTC", "2015-03-10T12:34:56.789Z", "2015-03-10T12:34:56Z"},
+            {"100ms", "UTC", "2015-03-10T12:34:56.789Z", "2015-03-10T12:34:56.700Z"},
+            {"1w", "UTC", "2015-03-10T12:34:56.789Z", "2015-03-09T00:00:00Z"},
+            {"1w", "UTC", "1970-01-01T00:00:00Z", "1969-12-29T00:00:00Z"},
+            {"1M", "Europe/Berlin", "2015-03-31T22:30:00Z", "2015-03-31T22:00:00Z"},
+            {"1m", "Europe/Berlin", "2015-03-31T21:30:00Z", "2015-02-28T23:00:00Z"},
+            {"3M", "UTC", "2015-03-10T12:34:56.789Z", "2015-01-01T00:00:00Z"},
+            {"1y", "UTC", "1969-03-10T12:34:56.789Z", "1969-01-01T00:00:00Z"},
+            // 23 hour day
+            {"1d", "Europe/Berlin", "2015-03-29T21:59:59Z", "2015-03-28T23:00:00Z"}
+        };
+    }
+
+    @Test(dataProvider = "buckets")
+    public void shouldComputeBucketKey(String interval, String zone, String timestamp, String expected) {
+        DateBucketer bucketer = DateBucketer.of(interval, ZoneId.of(zone));
+        assertThat(Instant.ofEpochMilli(bucketer.bucketKey(Instant.parse(timestamp).toEpochMilli()))).isEqualTo(Instant.parse(expected));
+    }
+
+    @DataProvider
+    Object[][] units() {
+        return new Object[][] {
+            {"1h", ChronoUnit.HOURS},
+            {"1d", ChronoUnit.DAYS},
+            {"1w", ChronoUnit.WEEKS},
+            {"1M", ChronoUnit.MONTHS},
+            {"1y", ChronoUnit.YEARS}
+        };
+    }
+
+    @Test(dataProvider = "units")
+    public void shouldAgreeWithJavaTime(String interval, ChronoUnit unit) {
+        for (String id : new String[] { "UTC", "-05:00", "Europe/Berlin", "America/New_York", "Australia/Lord_Howe" }) {
+            ZoneId zone = ZoneId.of(id);
+            DateBucketer bucketer = DateBucketer.of(interval, zone);
+            // every 7 minutes and 13 seconds for a bit over a year
+            for (long millis = Instant.parse("2015-01-01T00:00:00Z").toEpochMilli(); millis < Instant.parse("2016-02-01T00:00:00Z").toEpochMilli(); millis += 433_000) {
+                long key = bucketer.bucketKey(millis);
+                assertThat(key).as(id + " " + Instant.ofEpochMilli(millis)).isEqualTo(expectedKey(millis, zone, unit));
+                assertThat(key).isLessThanOrEqualTo(millis);
+                assertThat(bucketer.nextBucketKey(key)).isGreaterThan(millis);
+            }
+        }
+    }
+
+    private static long expectedKey(long millis, ZoneId zone, ChronoUnit unit) {
+        LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), zone);
+        switch (unit) {
+        case HOURS:
+        case DAYS:
+            local = local.truncatedTo(unit);
+            break;
+        case WEEKS:
+            local = local.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            break;
+        case MONTHS:
+            local = local.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            break;
+        default:
+            local = local.truncatedTo(ChronoUnit.DAYS).withDayOfYear(1);
+        }
+        // in the second pass of an overlap the key is in the second pass as well
+        return ZonedDateTime.ofLocal(local, zone, zone.getRules().getOffset(Instant.ofEpochMilli(millis))).toInstant().toEpochMilli();
+    }
+
+    public void shouldContainTimestampsInOverlap() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        // m is months, so 900s for 15 minutes
+        for (String interval : new String[] { "1s", "900s", "1h", "1d" }) {
+            DateBucketer bucketer = DateBucketer.of(interval, berlin);
+            // 02:00 until 03:00 local time happens twice
+            for (long millis = Instant.parse("2015-10-24T23:00:00Z").toEpochMilli(); millis < Instant.parse("2015-10-25T03:00:00Z").toEpochMilli(); millis += 7_777) {
+                long key = bucketer.bucketKey(millis);
+                assertThat(key).as(interval + " " + Instant.ofEpochMilli(millis)).isLessThanOrEqualTo(millis);
+                assertThat(bucketer.nextBucketKey(key)).as(interval + " " + Instant.ofEpochMilli(millis)).isGreaterThan(millis);
+                assertThat(bucketer.bucketKey(bucketer.nextBucketKey(key))).isEqualTo(bucketer.nextBucketKey(key));
+            }
+        }
+        DateBucketer seconds = DateBucketer.of("1s", berlin);
+        long secondPass = Instant.parse("2015-10-25T01:58:22.624Z").toEpochMilli();
+        assertThat(Instant.ofEpochMilli(seconds.bucketKey(secondPass))).isEqualTo(Instant.parse("2015-10-25T01:58:22Z"));
+        DateBucketer quarters = DateBucketer.of("900s", berlin);
+        // the last quarter of the first pass ends where the second pass starts
+        long firstPass = quarters.bucketKey(Instant.parse("2015-10-25T00:50:00Z").toEpochMilli());
+        assertThat(Instant.ofEpochMilli(quarters.nextBucketKey(firstPass))).isEqualTo(Instant.parse("2015-10-25T01:00:00Z"));
+    }
+
+    public void shouldStepToNextBucket() {
+        DateBucketer bucketer = DateBucketer.of("1d", ZoneId.of("Europe/Berlin"));
+        long key = bucketer.bucketKey(Instant.parse("2015-03-29T12:00:00Z").toEpochMilli());
+        assertThat(Instant.ofEpochMilli(bucketer.nextBucketKey(key))).isEqualTo(Instant.parse("2015-03-29T22:00:00Z"));
+        assertThat(bucketer.nextBucketKey(key) - key).isEqualTo(23 * 3_600_000L);
+        DateBucketer months = DateBucketer.of("2M", ZoneOffset.UTC);
+        assertThat(Instant.ofEpochMilli(months.nextBucketKey(Instant.parse("2015-11-01T00:00:00Z").toEpochMilli()))).isEqualTo(Instant.parse("2016-01-01T00:00:00Z"));
+    }
+
+    @DataProvider
+    Object[][] invalidIntervals() {
+        return new Object[][] {
+            {null},
+            {""},
+            {"0d"},
+            {"1x"},
+            {"99999999999d"},
+            {"d1"}
+        };
+    }
+
+    @Test(dataProvider = "invalidIntervals", expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidIntervals(String interval) {
+        DateBucketer.of(interval);
+    }
+}
@@ -0,0 +1,63 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.testng.annotations.Test;
+
+@Test
+public class DateMathCacheTest {
+
+    public void shouldCountHitsAndMisses() {
+        DateMathCache cache = new DateMathCache(10);
+        CompiledDateMath compiled = cache.get("now-1d");
+        assertThat(cache.get("now-1d")).isSameAs(compiled);
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    public void shouldEvictLeastRecentlyUsed() {
+        DateMathCache cache = new DateMathCache(2);
+        cache.get("now-1d");
+        cache.get("now-2d");
+        cache.get("now-1d");
+        cache.get("now-3d");
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictions()).isEqualTo(1);
+        cache.get("now-1d");
+        assertThat(cache.hits()).isEqualTo(2);
+        cache.get("now-2d");
+        assertThat(cache.misses()).isEqualTo(4);
+    }
+
+    public void shouldStillEvaluateRelativeToNow() {
+        DateMathCache cache = new DateMathCache(10);
+        Instant now = Instant.parse("2015-03-10T12:00:00Z");
+        assertThat(cache.get("now").evaluate(now, ZoneOffset.UTC)).isEqualTo(now);
+        assertThat(cache.get("now").evaluate(now.plusSeconds(60), ZoneOffset.UTC)).isEqualTo(now.plusSeconds(60));
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class)
+    public void shouldNotCacheInvalidExpressions() {
+        DateMathCache cache = new DateMathCache(10);
+        try {
+            cache.get("xxx");
+        } finally {
+            assertThat(cache.size()).isEqualTo(0);
+        }
+    }
+
+    public void shouldBeUsedByParse() {
+        DateMathCache cache = new DateMathCache(10);
+        DateMath.setCache(cache);
+        try {
+            assertThat(DateMath.parse("2015-01-01")).isEqualTo(Instant.parse("2015-01-01T00:00:00Z"));
+            assertThat(DateMath.parse("2015-01-01")).isEqualTo(Instant.parse("2015-01-01T00:00:00Z"));
+            assertThat(cache.hits()).isGreaterThanOrEqualTo(1);
+        } finally {
+            DateMath.setCache(null);
+        }
+    }
+}
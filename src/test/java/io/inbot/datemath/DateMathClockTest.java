@@ -0,0 +1,39 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.testng.annotations.Test;
+
+/**
+ * Swaps the global clock, so surefire runs the clock group on its own after the other tests.
+ */
+@Test(groups = "clock", singleThreaded = true)
+public class DateMathClockTest {
+    private static final Instant NOW = Instant.parse("2015-03-10T12:34:56.789Z");
+
+    public void shouldUseConfiguredClock() {
+        Clock original = DateMath.getClock();
+        // the zone of the clock is ignored
+        DateMath.setClock(Clock.fixed(NOW, ZoneId.of("Europe/Berlin")));
+        try {
+            assertThat(DateMath.now()).isEqualTo(NOW);
+            assertThat(DateMath.parse("now")).isEqualTo(NOW);
+            assertThat(DateMath.parse("now/d")).isEqualTo(Instant.parse("2015-03-10T00:00:00Z"));
+            assertThat(DateMath.parse("yesterday")).isEqualTo(Instant.parse("2015-03-09T00:00:00Z"));
+            assertThat(DateMath.parse("10:00")).isEqualTo(Instant.parse("2015-03-10T10:00:00Z"));
+            assertThat(DateMath.parse("now-1d", ZoneOffset.UTC)).isEqualTo(NOW.minusSeconds(86400));
+        } finally {
+            DateMath.setClock(original);
+        }
+        assertThat(DateMath.getClock()).isSameAs(original);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectNullClock() {
+        DateMath.setClock(null);
+    }
+}
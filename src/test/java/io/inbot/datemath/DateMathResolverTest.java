@@ -0,0 +1,79 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.testng.annotations.Test;
+
+@Test
+public class DateMathResolverTest {
+    private static final Instant NOW = Instant.parse("2015-03-10T12:34:56.789Z");
+
+    public void shouldReuseValueUntilBoundary() {
+        DateMathResolver resolver = new DateMathResolver(10);
+        assertThat(resolver.resolve("beginning month", NOW, ZoneOffset.UTC, false)).isEqualTo(Instant.parse("2015-03-01T00:00:00Z"));
+        assertThat(resolver.resolve("beginning month", NOW.plusSeconds(86400), ZoneOffset.UTC, false)).isEqualTo(Instant.parse("2015-03-01T00:00:00Z"));
+        assertThat(resolver.hits()).isEqualTo(1);
+        assertThat(resolver.resolve("beginning month", Instant.parse("2015-04-01T00:00:00Z"), ZoneOffset.UTC, false)).isEqualTo(Instant.parse("2015-04-01T00:00:00Z"));
+        assertThat(resolver.misses()).isEqualTo(2);
+        assertThat(resolver.size()).isEqualTo(1);
+    }
+
+    public void shouldRecomputeWhenNowMovesBackwards() {
+        DateMathResolver resolver = new DateMathResolver(10);
+        assertThat(resolver.resolve("yesterday", NOW, ZoneOffset.UTC, false)).isEqualTo(Instant.parse("2015-03-09T00:00:00Z"));
+        assertThat(resolver.resolve("yesterday", NOW.minusSeconds(86400), ZoneOffset.UTC, false)).isEqualTo(Instant.parse("2015-03-08T00:00:00Z"));
+    }
+
+    public void shouldNotReuseContinuouslyChangingValues() {
+        DateMathResolver resolver = new DateMathResolver(10);
+        assertThat(resolver.resolve("now-1d", NOW, ZoneOffset.UTC, false)).isEqualTo(NOW.minusSeconds(86400));
+        assertThat(resolver.resolve("now-1d", NOW.plusMillis(1), ZoneOffset.UTC, false)).isEqualTo(NOW.minusSeconds(86400).plusMillis(1));
+        assertThat(resolver.hits()).isEqualTo(0);
+        assertThat(resolver.misses()).isEqualTo(2);
+        // the compiled expression is still kept
+        assertThat(resolver.size()).isEqualTo(1);
+    }
+
+    public void shouldKeepZonesAndRoundingApart() {
+        DateMathResolver resolver = new DateMathResolver(10);
+        assertThat(resolver.resolve("now/d", NOW, ZoneOffset.UTC, false)).isEqualTo(Instant.parse("2015-03-10T00:00:00Z"));
+        assertThat(resolver.resolve("now/d", NOW, ZoneOffset.ofHours(2), false)).isEqualTo(Instant.parse("2015-03-09T22:00:00Z"));
+        assertThat(resolver.resolve("now/d", NOW, ZoneOffset.UTC, true)).isEqualTo(Instant.parse("2015-03-10T23:59:59.999Z"));
+        assertThat(resolver.size()).isEqualTo(3);
+    }
+
+    public void shouldAgreeWithEvaluate() {
+        String[] expressions = { "now/d", "now+1h/d", "now-3h/d", "now-30s/h", "now-1d-1h/d", "now-1M/d", "now+1M/w", "now-1y/M", "now/h-1d", "beginning week", "end month",
+                "tomorrow", "10:00", "2015-01-01+1d", "now-1d" };
+        ZoneId[] zones = { ZoneOffset.UTC, ZoneId.of("Europe/Berlin"), ZoneId.of("America/New_York"), ZoneId.of("Australia/Lord_Howe") };
+        DateMathResolver resolver = new DateMathResolver(100);
+        for (ZoneId zone : zones) {
+            // steps of 17 minutes for a bit over a year, so we cross every kind of boundary including dst changes
+            for (Instant now = Instant.parse("2015-01-01T00:00:00Z"); now.isBefore(Instant.parse("2016-02-01T00:00:00Z")); now = now.plusSeconds(17 * 60)) {
+                for (String expression : expressions) {
+                    for (boolean roundUp : new boolean[] { false, true }) {
+                        Instant expected = DateMath.compile(expression).evaluate(now, zone, roundUp);
+                        assertThat(resolver.resolve(expression, now, zone, roundUp)).as(expression + " " + now + " " + zone).isEqualTo(expected);
+                    }
+                }
+            }
+        }
+        assertThat(resolver.hits()).isGreaterThan(resolver.misses());
+    }
+
+    public void shouldStopGrowingWhenFull() {
+        DateMathResolver resolver = new DateMathResolver(2);
+        resolver.resolve("now/d", NOW, ZoneOffset.UTC, false);
+        resolver.resolve("now/h", NOW, ZoneOffset.UTC, false);
+        assertThat(resolver.resolve("now/y", NOW, ZoneOffset.UTC, false)).isEqualTo(Instant.parse("2015-01-01T00:00:00Z"));
+        assertThat(resolver.size()).isEqualTo(2);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidExpressions() {
+        new DateMathResolver(10).resolve("now+1x", NOW, ZoneOffset.UTC, false);
+    }
+}
@@ -2,21 +2,40 @@ package io.inbot.datemath;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.DateTimeException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Locale;
-import java.util.regex.Matcher;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 @Test
 public class DateMathTest {
 
+    public void shouldHaveSignificantInstants() {
+        assertThat(DateMath.AT_0AD).isEqualTo(LocalDateTime.of(0, 1, 1, 0, 0).toInstant(ZoneOffset.UTC));
+        assertThat(DateMath.AT_Y2K).isEqualTo(LocalDateTime.of(2000, 1, 1, 0, 0).toInstant(ZoneOffset.UTC));
+        assertThat(DateMath.AT_Y10K).isEqualTo(LocalDateTime.of(9999, 12, 31, 0, 0).toInstant(ZoneOffset.UTC));
+        assertThat(DateMath.AT_Y2K38).isEqualTo(Instant.parse("2038-01-19T03:14:07Z"));
+    }
+
     public void shouldFormatLocalDate() {
         String isoDate = DateMath.formatIsoDate(LocalDate.of(1974, 10, 20));
         assertThat(isoDate).isEqualTo("1974-10-20T00:00:00.000Z");
@@ -57,6 +76,98 @@ public class DateMathTest {
         assertThat(DateMath.formatSimpleIsoTimestamp(DateMath.parse("1974-10-20"))).isEqualTo("19741020000000");
     }
 
+    public void shouldFormatLikeJavaTime() {
+        DateTimeFormatter withMs = new DateTimeFormatterBuilder().appendInstant(3).toFormatter();
+        DateTimeFormatter noMs = new DateTimeFormatterBuilder().appendInstant(0).toFormatter();
+        Random random = new Random(42);
+        long[] samples = new long[10_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = random.nextLong() % 400_000_000_000_000L;
+        }
+        samples[0] = 0;
+        samples[1] = -1;
+        samples[2] = DateMath.AT_0AD.toEpochMilli();
+        samples[3] = DateMath.AT_0AD.toEpochMilli() - 1;
+        samples[4] = DateMath.AT_Y10K.toEpochMilli() + 86_399_999;
+        samples[5] = DateMath.AT_Y10K.toEpochMilli() + 86_400_000;
+        char[] chars = new char[40];
+        byte[] bytes = new byte[40];
+        for (long millis : samples) {
+            Instant instant = Instant.ofEpochMilli(millis);
+            String expected = withMs.format(instant.atZone(ZoneOffset.UTC));
+            assertThat(DateMath.formatIsoDate(millis)).isEqualTo(expected);
+            assertThat(DateMath.formatIsoDate(instant.plusNanos(999))).isEqualTo(expected);
+            assertThat(DateMath.formatIsoDateNoMs(instant)).isEqualTo(noMs.format(instant.atZone(ZoneOffset.UTC)));
+            StringBuilder sb = new StringBuilder("x");
+            DateMath.formatIsoDate(millis, sb);
+            assertThat(sb.toString()).isEqualTo("x" + expected);
+            int end = DateMath.formatIsoDate(millis, chars, 2);
+            assertThat(new String(chars, 2, end - 2)).isEqualTo(expected);
+            end = DateMath.formatIsoDate(millis, bytes, 3);
+            assertThat(new String(bytes, 3, end - 3, StandardCharsets.US_ASCII)).isEqualTo(expected);
+        }
+    }
+
+    public void shouldFormatAndParseSimpleTimestampsLikeJavaTime() {
+        DateTimeFormatter simple = DateTimeFormatter.ofPattern("uuuuMMddHHmmss");
+        Random random = new Random(42);
+        long range = DateMath.AT_Y10K.toEpochMilli() - DateMath.AT_0AD.toEpochMilli();
+        byte[] bytes = new byte[20];
+        for (int i = 0; i < 10_000; i++) {
+            long millis = DateMath.AT_0AD.toEpochMilli() + Math.floorMod(random.nextLong(), range);
+            Instant instant = Instant.ofEpochMilli(millis);
+            String expected = simple.format(instant.atZone(ZoneOffset.UTC));
+            assertThat(DateMath.formatSimpleIsoTimestamp(millis)).isEqualTo(expected);
+            assertThat(DateMath.formatSimpleIsoTimestamp(instant)).isEqualTo(expected);
+            StringBuilder sb = new StringBuilder("x");
+            DateMath.formatSimpleIsoTimestamp(millis, sb);
+            assertThat(sb.toString()).isEqualTo("x" + expected);
+            assertThat(DateMath.formatSimpleIsoTimestamp(millis, bytes, 3)).isEqualTo(17);
+            assertThat(new String(bytes, 3, 14, StandardCharsets.US_ASCII)).isEqualTo(expected);
+
+            long expectedMillis = Math.floorDiv(millis, 1000) * 1000;
+            assertThat(DateMath.parseSimpleIsoTimestampMillis(expected)).isEqualTo(expectedMillis);
+            assertThat(DateMath.parseSimpleIsoTimestampMillis(bytes, 3, 14)).isEqualTo(expectedMillis);
+            assertThat(DateMath.parseSimpleIsoTimestamp(expected)).isEqualTo(Instant.ofEpochMilli(expectedMillis));
+        }
+    }
+
+    @DataProvider
+    Object[][] invalidSimpleTimestamps() {
+        return new Object[][] {
+            {null},
+            {""},
+            {"1974102000000"},
+            {"197410200000000"},
+            {"1974-10-200000"},
+            {"19741320000000"},
+            {"19740230000000"},
+            {"19741020240000"},
+            {"19741020006000"},
+            {"19741020000060"},
+            {" 9741020000000"}
+        };
+    }
+
+    @Test(dataProvider = "invalidSimpleTimestamps")
+    public void shouldNotParseInvalidSimpleTimestamps(String text) {
+        assertThat(DateMath.parseSimpleIsoTimestampMillis(text)).isEqualTo(DateMath.INVALID_EPOCH);
+        if (text != null) {
+            byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+            assertThat(DateMath.parseSimpleIsoTimestampMillis(bytes, 0, bytes.length)).isEqualTo(DateMath.INVALID_EPOCH);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldThrowOnInvalidSimpleTimestamp() {
+        DateMath.parseSimpleIsoTimestamp("19740230000000");
+    }
+
+    @Test(expectedExceptions = DateTimeException.class)
+    public void shouldNotFormatSimpleTimestampWithFiveDigitYear() {
+        DateMath.formatSimpleIsoTimestamp(DateMath.AT_Y10K.toEpochMilli() + 86_400_000, new StringBuilder());
+    }
+
     @DataProvider
     Object[][] yearMonthPatterns() {
         return new Object[][] {
@@ -70,8 +181,7 @@ public class DateMathTest {
 
     @Test(dataProvider="yearMonthPatterns")
     public void shouldMatchYearMonthPattern(String input, boolean expectMatch) {
-        Matcher matcher = DateMath.YEAR_MONTH_PATTERN.matcher(input);
-        assertThat(matcher.matches()).isEqualTo(expectMatch);
+        assertThat(new IsoScanner().scan(input, 0, input.length()) == IsoScanner.YEAR_MONTH).isEqualTo(expectMatch);
     }
 
     public void shouldParseYearMonthPattern() {
@@ -79,6 +189,306 @@ public class DateMathTest {
         assertThat(DateMath.formatIsoDate(DateMath.parse("2014"))).isEqualTo("2014-01-01T00:00:00.000Z");
     }
 
+    @DataProvider
+    Object[][] isoForms() {
+        return new Object[][] {
+            {"2015-01-01T10:00:00Z", IsoScanner.INSTANT},
+            {"2015-01-01t10:00:00.123456789z", IsoScanner.INSTANT},
+            {"-0003-04-06T00:00:00.000Z", IsoScanner.INSTANT},
+            {"2015-01-01T10:00:00+01:00", IsoScanner.UNKNOWN},
+            {"+12015-01-01T10:00:00Z", IsoScanner.UNKNOWN},
+            {"2015-02-29T10:00:00Z", IsoScanner.EXPRESSION},
+            {"2015-01-01T24:00:00Z", IsoScanner.INSTANT},
+            {"2015-06-30T23:59:60Z", IsoScanner.INSTANT},
+            {"2015-01-01T24:00:01Z", IsoScanner.EXPRESSION},
+            {"2015-01-0", IsoScanner.EXPRESSION},
+            {"2015-01-01T10:0", IsoScanner.EXPRESSION},
+            {"25:00", IsoScanner.EXPRESSION},
+            {"2014-13", IsoScanner.EXPRESSION},
+            {"2015-01-01", IsoScanner.DATE},
+            {"10:00", IsoScanner.TIME},
+            {"10:00:01.5", IsoScanner.TIME},
+            {"2014", IsoScanner.YEAR_MONTH},
+            {"2014/02", IsoScanner.YEAR_MONTH},
+            {"now", IsoScanner.EXPRESSION},
+            {"now-1d", IsoScanner.EXPRESSION},
+            {"-10s", IsoScanner.EXPRESSION},
+            {"10:00 -1d", IsoScanner.EXPRESSION},
+            {"2015-01-01-1d", IsoScanner.EXPRESSION},
+            {"2014-0", IsoScanner.EXPRESSION}
+        };
+    }
+
+    @Test(dataProvider="isoForms")
+    public void shouldScanIsoForms(String input, int expectedForm) {
+        assertThat(new IsoScanner().scan(input, 0, input.length())).isEqualTo(expectedForm);
+    }
+
+    @DataProvider
+    Object[][] isoInstants() {
+        return new Object[][] {
+            {"2015-01-01T10:00:00Z"},
+            {"2015-01-01T10:00:00.1Z"},
+            {"2015-01-01t10:00:00.123456789z"},
+            {"2016-02-29T23:59:59.999Z"},
+            {"1969-12-31T23:59:59.999Z"},
+            {"-0003-04-06T00:00:00.000Z"},
+            {"0000-01-01T00:00:00Z"},
+            {"9999-12-31T23:59:59Z"},
+            {"2015-01-01T10:00:00+01:00"},
+            {"2015-01-01T24:00:00Z"},
+            {"2015-06-30T23:59:60.5Z"}
+        };
+    }
+
+    @Test(dataProvider="isoInstants")
+    public void shouldParseIsoInstantsLikeJavaTime(String input) {
+        assertThat(DateMath.parse(input)).isEqualTo(Instant.parse(input));
+    }
+
+    public void shouldParseIsoDatesInOffset() {
+        assertThat(DateMath.parse("2015-03-01", "+02:00")).isEqualTo(LocalDate.of(2015, 3, 1).atStartOfDay().toInstant(ZoneOffset.ofHours(2)));
+        assertThat(DateMath.parse("2015-03", "-05:00")).isEqualTo(LocalDate.of(2015, 3, 1).atStartOfDay().toInstant(ZoneOffset.ofHours(-5)));
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class)
+    public void shouldNotParseInvalidDay() {
+        DateMath.parse("2015-02-29");
+    }
+
+    @DataProvider
+    Object[][] epochMillisSamples() {
+        return new Object[][] {
+            {"2015-01-01T10:00:00.123456Z"},
+            {" 2015-01-01 "},
+            {"2015-02"},
+            {"10:00:00.5"},
+            {"now"},
+            {"NOW - 10s"},
+            {"now+1d"},
+            {"-1w"},
+            {"  -  100  y  "},
+            {"now-1m"},
+            {"yesterday + 1h"},
+            {"2015-01-01T10:00:00+01:00"}
+        };
+    }
+
+    @Test(dataProvider="epochMillisSamples")
+    public void shouldParseEpochMillisLikeParse(String input) {
+        long expected = DateMath.parse(input).toEpochMilli();
+        assertThat(Math.abs(DateMath.parseEpochMillis(input) - expected)).isLessThan(500);
+        assertThat(Math.abs(DateMath.parseEpochSecond(input) - expected / 1000)).isLessThanOrEqualTo(1);
+    }
+
+    @Test(dataProvider="epochMillisSamples")
+    public void shouldParseEpochMillisLikeParseWithReferenceTime(String input) {
+        Instant now = Instant.parse("2015-03-10T12:34:56.789Z");
+        assertThat(DateMath.parseEpochMillis(input, now.toEpochMilli())).isEqualTo(DateMath.parse(input, now).toEpochMilli());
+    }
+
+    public void shouldParseRelativeToReferenceInstant() {
+        Instant now = Instant.parse("2015-03-10T12:34:56.789Z");
+        assertThat(DateMath.parse("now", now)).isEqualTo(now);
+        assertThat(DateMath.parse("now-1d", now)).isEqualTo(Instant.parse("2015-03-09T12:34:56.789Z"));
+        assertThat(DateMath.parse("10:00", now)).isEqualTo(Instant.parse("2015-03-10T10:00:00Z"));
+        assertThat(DateMath.parse("yesterday", now)).isEqualTo(Instant.parse("2015-03-09T00:00:00Z"));
+    }
+
+    public void shouldParseRelativeToClock() {
+        Clock clock = Clock.fixed(Instant.parse("2015-03-10T23:34:56Z"), ZoneOffset.ofHours(2));
+        assertThat(DateMath.parse("10:00", clock)).isEqualTo(Instant.parse("2015-03-11T08:00:00Z"));
+        assertThat(DateMath.parse("2015-03-01T00:00:00Z", clock)).isEqualTo(Instant.parse("2015-03-01T00:00:00Z"));
+        assertThat(DateMath.parse("2015-03-01", clock)).isEqualTo(DateMath.parse("2015-03-01", "+02:00"));
+    }
+
+    public void shouldResolveAndCacheZoneIds() {
+        assertThat(ZoneIds.of("Europe/Berlin")).isSameAs(ZoneIds.of("Europe/Berlin"));
+        assertThat(ZoneIds.of("EST")).isEqualTo(ZoneId.of("EST", ZoneId.SHORT_IDS));
+        assertThat(ZoneIds.of("+02:00")).isEqualTo(ZoneOffset.ofHours(2));
+    }
+
+    @Test(expectedExceptions=DateTimeException.class)
+    public void shouldRejectInvalidZoneId() {
+        ZoneIds.of("Mars/Olympus_Mons");
+    }
+
+    public void shouldParseWithZoneId() {
+        Instant now = Instant.parse("2015-03-10T12:34:56.789Z");
+        assertThat(DateMath.parse("2015-03-01", ZoneOffset.ofHours(2))).isEqualTo(DateMath.parse("2015-03-01", "+02:00"));
+        assertThat(DateMath.parse("10:00", now, ZoneOffset.ofHours(-5))).isEqualTo(Instant.parse("2015-03-10T15:00:00Z"));
+    }
+
+    public void shouldParseAllAgainstSameReferenceTime() {
+        long now = Instant.parse("2015-03-10T12:34:56.789Z").toEpochMilli();
+        String[] in = {"2015-01-01T10:00:00Z", "now-1d", "xxx", null, " 10:00 ", "yesterday + 1h"};
+        long[] out = new long[in.length];
+        BitSet errors = new BitSet();
+        errors.set(0);
+        assertThat(DateMath.parseAll(in, out, now, errors)).isEqualTo(2);
+        for (int i = 0; i < in.length; i++) {
+            assertThat(out[i]).isEqualTo(DateMath.parseEpochMillis(in[i], now));
+            assertThat(errors.get(i)).isEqualTo(out[i] == DateMath.INVALID_EPOCH);
+        }
+        List<String> list = new LinkedList<>(Arrays.asList(in));
+        long[] fromList = new long[in.length];
+        assertThat(DateMath.parseAll(list, fromList, now, null)).isEqualTo(2);
+        assertThat(fromList).isEqualTo(out);
+        BitSet iteratorErrors = new BitSet();
+        assertThat(DateMath.parseAll(list.iterator(), now, iteratorErrors)).isEqualTo(out);
+        assertThat(iteratorErrors).isEqualTo(errors);
+    }
+
+    public void shouldNotAbortBatchOnBlankElements() {
+        long now = Instant.parse("2015-03-10T12:34:56.789Z").toEpochMilli();
+        String[] in = {"", "now", "  ", "2015-01-01"};
+        long[] out = new long[in.length];
+        BitSet errors = new BitSet();
+        assertThat(DateMath.parseAll(in, out, now, errors)).isEqualTo(2);
+        assertThat(out).isEqualTo(new long[] {DateMath.INVALID_EPOCH, now, DateMath.INVALID_EPOCH, Instant.parse("2015-01-01T00:00:00Z").toEpochMilli()});
+        assertThat(errors.get(0)).isTrue();
+        assertThat(errors.get(1)).isFalse();
+        assertThat(errors.get(2)).isTrue();
+        assertThat(errors.get(3)).isFalse();
+        BitSet iteratorErrors = new BitSet();
+        assertThat(DateMath.parseAll(Arrays.asList(in).iterator(), now, iteratorErrors)).isEqualTo(out);
+        assertThat(iteratorErrors).isEqualTo(errors);
+    }
+
+    public void shouldGrowOutputForIterators() {
+        List<String> in = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            in.add("1970-01-01T00:00:0" + i % 10 + "Z");
+        }
+        long[] out = DateMath.parseAll(in.iterator(), 0, null);
+        assertThat(out.length).isEqualTo(100);
+        assertThat(out[99]).isEqualTo(9000);
+    }
+
+    public void shouldParseInParallelLikeSequential() {
+        long now = Instant.parse("2015-03-10T12:34:56.789Z").toEpochMilli();
+        Random random = new Random(42);
+        String[] in = new String[10_000];
+        for (int i = 0; i < in.length; i++) {
+            switch (i % 5) {
+            case 0:
+                in[i] = DateMath.formatIsoDate(random.nextInt(Integer.MAX_VALUE) * 1000L);
+                break;
+            case 1:
+                in[i] = "now-" + random.nextInt(100) + "d";
+                break;
+            case 2:
+                in[i] = "2015-02-" + (1 + random.nextInt(30));
+                break;
+            case 3:
+                in[i] = "xxx" + i;
+                break;
+            default:
+                // blank cells are common in exported columns
+                in[i] = i % 2 == 0 ? "" : "  ";
+            }
+        }
+        long[] expected = new long[in.length];
+        BitSet expectedErrors = new BitSet();
+        int failures = DateMath.parseAll(in, expected, now, expectedErrors);
+        assertThat(expectedErrors.get(4)).isTrue();
+        assertThat(expectedErrors.get(9)).isTrue();
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            long[] out = new long[in.length];
+            BitSet errors = new BitSet();
+            assertThat(DateMath.parallelParseAll(in, out, now, errors, pool, 100)).isEqualTo(failures);
+            assertThat(out).isEqualTo(expected);
+            assertThat(errors).isEqualTo(expectedErrors);
+
+            long[] fromList = new long[in.length];
+            assertThat(DateMath.parallelParseAll(new LinkedList<>(Arrays.asList(in)), fromList, now, null, pool, 1000)).isEqualTo(failures);
+            assertThat(fromList).isEqualTo(expected);
+        } finally {
+            pool.shutdown();
+        }
+        long[] commonPool = new long[in.length];
+        DateMath.parallelParseAll(in, commonPool, now, null);
+        assertThat(commonPool).isEqualTo(expected);
+    }
+
+    @Test(expectedExceptions=IllegalArgumentException.class)
+    public void shouldRejectTooSmallOutput() {
+        DateMath.parseAll(new String[] {"now", "now"}, new long[1]);
+    }
+
+    @Test(dataProvider="epochMillisSamples")
+    public void shouldParseEpochMillisFromBytes(String input) {
+        byte[] bytes = ("{\"t\":\"" + input + "\"}").getBytes(StandardCharsets.UTF_8);
+        int off = 6;
+        int len = input.length();
+        long expected = DateMath.parseEpochMillis(input);
+        assertThat(Math.abs(DateMath.parseEpochMillis(bytes, off, len) - expected)).isLessThan(500);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        assertThat(Math.abs(DateMath.parseEpochMillis(direct, off, len) - expected)).isLessThan(500);
+        assertThat(direct.position()).isEqualTo(bytes.length);
+        assertThat(Math.abs(DateMath.parseEpochMillis(ByteBuffer.wrap(bytes), off, len) - expected)).isLessThan(500);
+    }
+
+    public void shouldNotParseInvalidBytes() {
+        byte[] bytes = "2015-01-01T10:00:00Z xxx \u00e9t\u00e9".getBytes(StandardCharsets.UTF_8);
+        assertThat(DateMath.parseEpochMillis(bytes, 0, 20)).isEqualTo(Instant.parse("2015-01-01T10:00:00Z").toEpochMilli());
+        assertThat(DateMath.parseEpochMillis(bytes, 21, 3)).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis(bytes, 25, bytes.length - 25)).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis((byte[]) null, 0, 0)).isEqualTo(DateMath.INVALID_EPOCH);
+    }
+
+    public void shouldNotReadPastBlankSlices() {
+        byte[] bytes = "2015-01-01T10:00:00Z   ".getBytes(StandardCharsets.US_ASCII);
+        // blank slice at the end of the buffer
+        assertThat(DateMath.parseEpochMillis(bytes, 20, 3)).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis(ByteBuffer.wrap(bytes), 20, 3)).isEqualTo(DateMath.INVALID_EPOCH);
+        // blank slice followed by a digit that must not be read
+        byte[] middle = "  1d".getBytes(StandardCharsets.US_ASCII);
+        assertThat(DateMath.parseEpochMillis(middle, 0, 2)).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis(ByteBuffer.wrap(middle), 0, 2)).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis(middle, 1, 0)).isEqualTo(DateMath.INVALID_EPOCH);
+    }
+
+    @Test(expectedExceptions=IndexOutOfBoundsException.class)
+    public void shouldCheckByteBounds() {
+        DateMath.parseEpochMillis(new byte[10], 5, 6);
+    }
+
+    public void shouldMatchKeywordsIgnoringCaseAndUnderscores() {
+        for (Keyword keyword : Keyword.values()) {
+            String text = keyword.text();
+            assertThat(Keyword.match(text, 0, text.length())).isSameAs(keyword);
+            String shouting = text.toUpperCase(Locale.ENGLISH).replace(' ', '_');
+            assertThat(Keyword.match(shouting, 0, shouting.length())).isSameAs(keyword);
+            String padded = "[" + text + "]";
+            assertThat(Keyword.match(padded, 1, padded.length() - 1)).isSameAs(keyword);
+            assertThat(Keyword.match(text, 0, text.length() - 1)).isNotSameAs(keyword);
+        }
+        assertThat(Keyword.match("day  before yesterday", 0, 21)).isNull();
+        assertThat(Keyword.match("now-1d", 0, 6)).isNull();
+        assertThat(Keyword.match("", 0, 0)).isNull();
+        assertThat(Keyword.match("n\u00f6w", 0, 3)).isNull();
+    }
+
+    public void shouldParseEpochMillisFromStringBuilder() {
+        assertThat(DateMath.parseEpochMillis(new StringBuilder("1974-10-20T00:00:00.001Z"))).isEqualTo(151459200001L);
+    }
+
+    public void shouldReturnSentinelForInvalidEpochMillis() {
+        assertThat(DateMath.parseEpochMillis("xxx")).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis("now+1|")).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis(null)).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochSecond("2015-02-29")).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis("")).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis("   ")).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochMillis("\t\n", 0)).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochSecond("")).isEqualTo(DateMath.INVALID_EPOCH);
+        assertThat(DateMath.parseEpochSecond("  ")).isEqualTo(DateMath.INVALID_EPOCH);
+    }
+
     public void shouldFormatLocalDateTime() {
         LocalDateTime time = LocalDateTime.of(1984, 12, 1, 0, 0, 0);
         assertThat(DateMath.formatIsoDate(time)).isEqualTo("1984-12-01T00:00:00.000Z");
@@ -146,6 +556,14 @@ public class DateMathTest {
         assertThat(rendered).isEqualTo("42, 1974");
     }
 
+    public void shouldRenderInRegionZone() {
+        Instant ts = DateMath.parse("2015-12-31T23:30:00Z");
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        assertThat(DateMath.renderWeekYear(ts, berlin, Locale.ENGLISH)).isEqualTo("1, 2016");
+        assertThat(DateMath.renderMonthYear(ts, berlin, Locale.ENGLISH)).isEqualTo("January, 2016");
+        assertThat(DateMath.renderWeekYear(ts, ZoneOffset.UTC, Locale.ENGLISH)).isEqualTo("53, 2015");
+    }
+
     private long differenceInMillis(Instant one, Instant two) {
         return Math.abs(one.toEpochMilli()-two.toEpochMilli());
     }
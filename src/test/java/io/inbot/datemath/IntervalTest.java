@@ -0,0 +1,83 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@Test
+public class IntervalTest {
+    private static final Instant NOW = Instant.parse("2015-03-10T12:34:56.789Z");
+
+    @DataProvider
+    Object[][] ranges() {
+        return new Object[][] {
+            {"now-7d..now", "2015-03-03T12:34:56.789Z/2015-03-10T12:34:56.789Z"},
+            {" now-7d/d .. now/d ", "2015-03-03T00:00:00.000Z/2015-03-10T00:00:00.000Z"},
+            {"2015-01-01/2015-02-01", "2015-01-01T00:00:00.000Z/2015-02-01T00:00:00.000Z"},
+            {"2015-01-01T00:00:00Z/2015-01-01T00:00:00Z+1d", "2015-01-01T00:00:00.000Z/2015-01-02T00:00:00.000Z"},
+            {"now-1d/d/now/d", "2015-03-09T00:00:00.000Z/2015-03-10T00:00:00.000Z"},
+            {"2014/02/2014/03", "2014-02-01T00:00:00.000Z/2014-03-01T00:00:00.000Z"},
+            {"beginning month to now", "2015-03-01T00:00:00.000Z/2015-03-10T12:34:56.789Z"},
+            {"now..now", "2015-03-10T12:34:56.789Z/2015-03-10T12:34:56.789Z"}
+        };
+    }
+
+    @Test(dataProvider = "ranges")
+    public void shouldParseRange(String range, String expected) {
+        assertThat(DateMath.parseRange(range, NOW, ZoneOffset.UTC).toString()).isEqualTo(expected);
+    }
+
+    public void shouldResolveBothEndsAgainstSameNow() {
+        Interval interval = DateMath.parseRange("now-1d..now");
+        assertThat(interval.durationMillis()).isEqualTo(86_400_000);
+    }
+
+    public void shouldUseZone() {
+        Interval interval = DateMath.parseRange("2015-01-01..2015-01-02", NOW, ZoneOffset.ofHours(2));
+        assertThat(interval.getStart()).isEqualTo(Instant.parse("2014-12-31T22:00:00Z"));
+        assertThat(interval.getEnd()).isEqualTo(Instant.parse("2015-01-01T22:00:00Z"));
+    }
+
+    public void shouldContainStartButNotEnd() {
+        Interval interval = Interval.of(1000, 2000);
+        assertThat(interval.contains(999)).isFalse();
+        assertThat(interval.contains(1000)).isTrue();
+        assertThat(interval.contains(1999)).isTrue();
+        assertThat(interval.contains(2000)).isFalse();
+        assertThat(Interval.of(1000, 1000).contains(1000)).isFalse();
+    }
+
+    public void shouldOverlap() {
+        Interval interval = Interval.of(1000, 2000);
+        assertThat(interval.overlaps(Interval.of(1999, 3000))).isTrue();
+        assertThat(interval.overlaps(Interval.of(0, 1001))).isTrue();
+        assertThat(interval.overlaps(Interval.of(1200, 1300))).isTrue();
+        assertThat(interval.overlaps(Interval.of(2000, 3000))).isFalse();
+        assertThat(interval.overlaps(Interval.of(0, 1000))).isFalse();
+    }
+
+    public void shouldBeValueObject() {
+        assertThat(Interval.of(1, 2)).isEqualTo(Interval.of(1, 2));
+        assertThat(Interval.of(1, 2).hashCode()).isEqualTo(Interval.of(1, 2).hashCode());
+        assertThat(Interval.of(1, 2)).isNotEqualTo(Interval.of(1, 3));
+    }
+
+    @DataProvider
+    Object[][] invalidRanges() {
+        return new Object[][] {
+            {null},
+            {"now"},
+            {"now..xxx"},
+            {"now/d"},
+            {"now..now-1d"}
+        };
+    }
+
+    @Test(dataProvider = "invalidRanges", expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidRanges(String range) {
+        DateMath.parseRange(range, NOW, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,44 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Random;
+import org.testng.annotations.Test;
+
+@Test
+public class IsoTimestampFormatterTest {
+
+    public void shouldFormatIncreasingTimestampsLikeDateMath() {
+        IsoTimestampFormatter formatter = new IsoTimestampFormatter();
+        Random random = new Random(42);
+        long millis = DateMath.parse("1999-12-31T23:59:58Z").toEpochMilli();
+        for (int i = 0; i < 10_000; i++) {
+            millis += random.nextInt(50);
+            assertFormattedLikeDateMath(formatter, millis);
+        }
+    }
+
+    public void shouldFormatRandomTimestampsLikeDateMath() {
+        IsoTimestampFormatter formatter = new IsoTimestampFormatter();
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            assertFormattedLikeDateMath(formatter, random.nextLong() % 400_000_000_000_000L);
+        }
+        assertFormattedLikeDateMath(formatter, -1);
+        assertFormattedLikeDateMath(formatter, 0);
+    }
+
+    private void assertFormattedLikeDateMath(IsoTimestampFormatter formatter, long millis) {
+        String expected = DateMath.formatIsoDate(millis);
+        assertThat(formatter.format(millis)).isEqualTo(expected);
+        assertThat(formatter.formatNoMs(millis)).isEqualTo(DateMath.formatIsoDateNoMs(Instant.ofEpochMilli(millis)));
+        StringBuilder sb = new StringBuilder();
+        formatter.format(millis, sb);
+        assertThat(sb.toString()).isEqualTo(expected);
+        byte[] buf = new byte[50];
+        int end = formatter.format(millis, buf, 1);
+        assertThat(new String(buf, 1, end - 1, StandardCharsets.US_ASCII)).isEqualTo(expected);
+    }
+}
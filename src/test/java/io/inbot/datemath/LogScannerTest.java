@@ -0,0 +1,153 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test
+public class LogScannerTest {
+    private static final long START = Instant.parse("2015-03-10T00:00:00Z").toEpochMilli();
+
+    private Path log;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Long> times = new ArrayList<>();
+
+    @BeforeClass
+    public void writeLog() throws IOException {
+        log = Files.createTempFile("datemath", ".log");
+        long offset = 0;
+        try (Writer writer = Files.newBufferedWriter(log, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 1000; i++) {
+                long millis = START + i * 7_000L;
+                String line = DateMath.formatIsoDate(millis) + " INFO line " + i + "\n";
+                offsets.add(offset);
+                times.add(millis);
+                writer.write(line);
+                offset += line.length();
+                if (i % 10 == 0) {
+                    String trace = "\tat io.inbot.Foo.bar(Foo.java:" + i + ")\n";
+                    writer.write(trace);
+                    offset += trace.length();
+                }
+            }
+        }
+    }
+
+    @AfterClass
+    public void deleteLog() throws IOException {
+        Files.deleteIfExists(log);
+    }
+
+    public void shouldFindLinesInWindow() throws IOException {
+        try (LogScanner scanner = LogScanner.open(log)) {
+            long from = START + 700_000;
+            long to = START + 1_400_000;
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < times.size(); i++) {
+                if (times.get(i) >= from && times.get(i) < to) {
+                    expected.add(offsets.get(i));
+                }
+            }
+            assertThat(collect(scanner.lines(from, to))).isEqualTo(expected);
+        }
+    }
+
+    public void shouldSeekToFirstLineAtOrAfter() throws IOException {
+        try (LogScanner scanner = LogScanner.open(log)) {
+            assertThat(scanner.seek(0)).isEqualTo(0);
+            assertThat(scanner.seek(START + 7_000)).isEqualTo(offsets.get(1));
+            assertThat(scanner.seek(START + 7_001)).isEqualTo(offsets.get(2));
+            assertThat(scanner.seek(START + 999 * 7_000L)).isEqualTo(offsets.get(999));
+            assertThat(scanner.seek(START + 999 * 7_000L + 1)).isEqualTo(-1);
+            assertThat(scanner.timestamp(offsets.get(42))).isEqualTo(times.get(42));
+            assertThat(scanner.timestamp(offsets.get(1) - 1)).isEqualTo(DateMath.INVALID_EPOCH);
+        }
+    }
+
+    public void shouldHandleEmptyWindowAndDateMathBounds() throws IOException {
+        try (LogScanner scanner = LogScanner.open(log)) {
+            assertThat(scanner.lines(START + 10, START + 20).hasNext()).isFalse();
+            assertThat(collect(scanner.lines("2015-03-10T00:00:00Z", "2015-03-10T00:00:00Z+14s"))).containsExactly(offsets.get(0), offsets.get(1));
+            assertThat(scanner.lines("now", "now+1d").hasNext()).isFalse();
+        }
+    }
+
+    public void shouldHandleEmptyFile() throws IOException {
+        Path empty = Files.createTempFile("datemath", ".log");
+        try (LogScanner scanner = LogScanner.open(empty)) {
+            assertThat(scanner.size()).isEqualTo(0);
+            assertThat(scanner.seek(0)).isEqualTo(-1);
+            assertThat(scanner.lines(0, Long.MAX_VALUE).hasNext()).isFalse();
+        } finally {
+            Files.delete(empty);
+        }
+    }
+
+    public void shouldOnlyTreatIsoInstantsAsTimestamps() throws IOException {
+        List<String> lines = Arrays.asList(
+                "2015-03-10T10:00:00Z INFO start\n",
+                "2015-03-10T11:00:00Z INFO update\n",
+                "2014 rows updated\n",
+                "2015-03-10T12:00:00Z INFO ask\n",
+                "now what\n",
+                "10:00 was a long time ago\n",
+                "2015-03-10T13:00:00Z INFO done\n");
+        List<Long> lineOffsets = new ArrayList<>();
+        Path continued = writeLines(lines, lineOffsets);
+        try (LogScanner scanner = LogScanner.open(continued)) {
+            assertThat(scanner.timestamp(lineOffsets.get(2))).isEqualTo(DateMath.INVALID_EPOCH);
+            assertThat(scanner.timestamp(lineOffsets.get(4))).isEqualTo(DateMath.INVALID_EPOCH);
+            assertThat(scanner.timestamp(lineOffsets.get(5))).isEqualTo(DateMath.INVALID_EPOCH);
+            assertThat(collect(scanner.lines("2015-03-10T11:00:00Z", "2015-03-10T13:00:00Z"))).containsExactly(lineOffsets.get(1), lineOffsets.get(3));
+        } finally {
+            Files.delete(continued);
+        }
+    }
+
+    public void shouldSkipLinesBeforeWindow() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("2015-03-10T10:00:00Z INFO start\n");
+        for (int minute = 0; minute < 120; minute += 5) {
+            lines.add(DateMath.formatIsoDateNoMs(Instant.parse("2015-03-10T11:00:00Z").plusSeconds(minute * 60)) + " INFO tick\n");
+        }
+        // written late; the binary search never gets here but the iterator does
+        lines.add("2015-03-10T09:00:00Z WARN late\n");
+        lines.add("2015-03-10T13:00:00Z INFO done\n");
+        List<Long> lineOffsets = new ArrayList<>();
+        Path late = writeLines(lines, lineOffsets);
+        try (LogScanner scanner = LogScanner.open(late)) {
+            assertThat(collect(scanner.lines("2015-03-10T11:00:00Z", "2015-03-10T13:00:00Z"))).isEqualTo(lineOffsets.subList(1, lines.size() - 2));
+        } finally {
+            Files.delete(late);
+        }
+    }
+
+    private static Path writeLines(List<String> lines, List<Long> lineOffsets) throws IOException {
+        Path path = Files.createTempFile("datemath", ".log");
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            lineOffsets.add((long) content.length());
+            content.append(line);
+        }
+        Files.write(path, content.toString().getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+
+    private static List<Long> collect(PrimitiveIterator.OfLong iterator) {
+        List<Long> result = new ArrayList<>();
+        iterator.forEachRemaining((long offset) -> result.add(offset));
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import org.testng.annotations.Test;
+
+@Test
+public class PeriodLabelRendererTest {
+    private static final long OCTOBER_1974 = Instant.parse("1974-10-20T12:00:00Z").toEpochMilli();
+
+    public void shouldRenderLabels() {
+        PeriodLabelRenderer renderer = new PeriodLabelRenderer(ZoneOffset.UTC, Locale.ENGLISH);
+        assertThat(renderer.renderMonthYear(OCTOBER_1974)).isEqualTo("October, 1974");
+        assertThat(renderer.renderWeekYear(OCTOBER_1974)).isEqualTo("42, 1974");
+        assertThat(new PeriodLabelRenderer(ZoneOffset.UTC, Locale.GERMAN).renderMonthYear(OCTOBER_1974)).isEqualTo("Oktober, 1974");
+    }
+
+    public void shouldReuseLabels() {
+        PeriodLabelRenderer renderer = new PeriodLabelRenderer(ZoneOffset.UTC, Locale.ENGLISH);
+        assertThat(renderer.renderMonthYear(OCTOBER_1974)).isSameAs(renderer.renderMonthYear(OCTOBER_1974 + 86_400_000L));
+        assertThat(renderer.renderWeekYear(OCTOBER_1974)).isSameAs(renderer.renderWeekYear(OCTOBER_1974 + 1000));
+    }
+
+    public void shouldAppend() throws IOException {
+        PeriodLabelRenderer renderer = new PeriodLabelRenderer(ZoneOffset.UTC, Locale.ENGLISH);
+        assertThat(renderer.appendMonthYear(OCTOBER_1974, new StringBuilder("in ")).toString()).isEqualTo("in October, 1974");
+        assertThat(renderer.appendWeekYear(OCTOBER_1974, new StringWriter()).toString()).isEqualTo("42, 1974");
+    }
+
+    public void shouldAgreeWithDateMath() {
+        for (String id : new String[] { "UTC", "-05:00", "Europe/Berlin", "Pacific/Apia" }) {
+            ZoneId zone = ZoneId.of(id);
+            PeriodLabelRenderer renderer = new PeriodLabelRenderer(zone, Locale.ENGLISH);
+            // every 19 hours from 1890 to 2110, which includes years that are not cached
+            for (long millis = Instant.parse("1890-01-01T00:00:00Z").toEpochMilli(); millis < Instant.parse("2110-01-01T00:00:00Z").toEpochMilli(); millis += 19 * 3_600_000L) {
+                Instant instant = Instant.ofEpochMilli(millis);
+                assertThat(renderer.renderMonthYear(millis)).as(id + " " + instant).isEqualTo(DateMath.renderMonthYear(instant, zone, Locale.ENGLISH));
+                assertThat(renderer.renderWeekYear(millis)).as(id + " " + instant).isEqualTo(DateMath.renderWeekYear(instant, zone, Locale.ENGLISH));
+            }
+        }
+    }
+}
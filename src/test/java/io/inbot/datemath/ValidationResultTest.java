@@ -0,0 +1,97 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@Test
+public class ValidationResultTest {
+
+    @DataProvider
+    Object[][] samples() {
+        return new Object[][] {
+            {"now"},
+            {"now-1d"},
+            {" now - 5 d "},
+            {"2015-01-01T10:00:00Z+1d-2h"},
+            {"2015-01-01T24:00:00Z"},
+            {"2015-06-30T23:59:60Z"},
+            {"2015-01-01T10:00:00+01:00"},
+            {"+12015-01-01T00:00:00Z"},
+            {"2015-1d"},
+            {"00000000001d"},
+            {"Day_Before_Yesterday"},
+            {"xxx"},
+            {""},
+            {"2015-02-29"},
+            {"2015-13-01T10:00:00Z"},
+            {"2014-13"},
+            {"25:00"},
+            {"2015-01-0"},
+            {"2015-01-01T10:00:00.Z"},
+            {"now+1|"},
+            {"now-1x"},
+            {"2147483648d"},
+            {"now+2147483647y"},
+            {"-0000-01-01"}
+        };
+    }
+
+    @Test(dataProvider = "samples")
+    public void shouldAcceptExactlyWhatParseAccepts(String input) {
+        boolean parses;
+        try {
+            DateMath.parse(input);
+            parses = true;
+        } catch (RuntimeException e) {
+            parses = false;
+        }
+        assertThat(DateMath.validate(input).isValid()).isEqualTo(parses);
+        assertThat(DateMath.isValid(input)).isEqualTo(parses);
+    }
+
+    @DataProvider
+    Object[][] errors() {
+        return new Object[][] {
+            {null, ValidationResult.Error.EMPTY, 0},
+            {"  ", ValidationResult.Error.EMPTY, 2},
+            {"xxx", ValidationResult.Error.UNKNOWN_EXPRESSION, 0},
+            {" 2015-02-30", ValidationResult.Error.BAD_ISO_FIELD, 9},
+            {"2015-13-01", ValidationResult.Error.BAD_ISO_FIELD, 5},
+            {"2015-01-01T25:00:00Z", ValidationResult.Error.BAD_ISO_FIELD, 11},
+            {"now + 1 day", ValidationResult.Error.BAD_UNIT, 8},
+            {"now+1|", ValidationResult.Error.BAD_UNIT, 5},
+            {"now-99999999999d", ValidationResult.Error.BAD_AMOUNT, 4},
+            {"foo-1d", ValidationResult.Error.UNKNOWN_EXPRESSION, 0},
+            {"now-1d+2x", ValidationResult.Error.BAD_UNIT, 8},
+            {"now-1d/x", ValidationResult.Error.BAD_UNIT, 7},
+            {"/d", ValidationResult.Error.UNKNOWN_EXPRESSION, 0},
+            {"now+2147483647y", ValidationResult.Error.OUT_OF_RANGE, 0}
+        };
+    }
+
+    @Test(dataProvider = "errors")
+    public void shouldReportErrorAndOffset(String input, ValidationResult.Error error, int offset) {
+        ValidationResult result = DateMath.validate(input);
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getError()).isEqualTo(error);
+        assertThat(result.getErrorOffset()).isEqualTo(offset);
+        assertThat(result.getMessage()).isNotEmpty();
+    }
+
+    public void shouldUseSameMessageAsParse() {
+        try {
+            DateMath.parse("now+1|");
+        } catch (IllegalArgumentException e) {
+            assertThat(DateMath.validate("now+1|").getMessage()).isEqualTo(e.getMessage());
+        }
+    }
+
+    public void shouldBeValid() {
+        ValidationResult result = DateMath.validate("now-1d");
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getError()).isNull();
+        assertThat(result.getErrorOffset()).isEqualTo(-1);
+    }
+}
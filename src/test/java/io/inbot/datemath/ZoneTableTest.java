@@ -0,0 +1,64 @@
+package io.inbot.datemath;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@Test
+public class ZoneTableTest {
+
+    @DataProvider
+    Object[][] zones() {
+        return new Object[][] {
+            {"Europe/Berlin"},
+            {"America/New_York"},
+            {"Australia/Lord_Howe"},
+            {"Asia/Kolkata"},
+            {"Pacific/Apia"},
+            {"UTC"}
+        };
+    }
+
+    @Test(dataProvider = "zones")
+    public void shouldAgreeWithZoneRules(String id) {
+        ZoneId zone = ZoneId.of(id);
+        ZoneTable table = ZoneTable.of(zone);
+        // every 15 minutes in a few years, including one outside of the default range
+        for (int year : new int[] { 1916, 1970, 2011, 2015, 2099, 2150 }) {
+            long start = EpochMath.epochDay(year, 1, 1) * EpochMath.SECONDS_PER_DAY;
+            for (long seconds = start; seconds < start + 366L * EpochMath.SECONDS_PER_DAY; seconds += 900) {
+                assertThat(table.offset(seconds)).as(zone + " " + seconds).isEqualTo(zone.getRules().getOffset(Instant.ofEpochSecond(seconds)).getTotalSeconds());
+                // also local times in gaps and overlaps
+                long expected = ZonedDateTime.ofLocal(LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC), zone, null).toEpochSecond();
+                assertThat(table.toEpochSecond(seconds)).as(zone + " local " + seconds).isEqualTo(expected);
+            }
+        }
+    }
+
+    public void shouldHaveTransitionsForDst() {
+        // two per year
+        assertThat(ZoneTable.of(ZoneId.of("Europe/Berlin")).size()).isGreaterThan(2 * 100);
+        assertThat(ZoneTable.of(ZoneId.of("UTC")).size()).isEqualTo(0);
+    }
+
+    public void shouldResolveGapsAndOverlapsLikeZonedDateTime() {
+        ZoneTable berlin = ZoneTable.of(ZoneId.of("Europe/Berlin"));
+        // 02:30 does not exist on 2015-03-29 and becomes 03:30 CEST
+        long gap = LocalDateTime.parse("2015-03-29T02:30:00").toEpochSecond(ZoneOffset.UTC);
+        assertThat(berlin.toEpochSecond(gap)).isEqualTo(Instant.parse("2015-03-29T01:30:00Z").getEpochSecond());
+        // 02:30 happens twice on 2015-10-25; the first one is CEST
+        long overlap = LocalDateTime.parse("2015-10-25T02:30:00").toEpochSecond(ZoneOffset.UTC);
+        assertThat(berlin.toEpochSecond(overlap)).isEqualTo(Instant.parse("2015-10-25T00:30:00Z").getEpochSecond());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvertedRange() {
+        DateMath.setZoneTableRange(2100, 1900);
+    }
+}